@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.benchmarks;
+
+import de.hsesslingen.keim.efs.annotations.runtime.HttpClientConfig;
+import de.hsesslingen.keim.efs.benchmarks.api.Booking;
+import de.hsesslingen.keim.efs.benchmarks.api.Station;
+import de.hsesslingen.keim.efs.benchmarks.api.StationApiRequests.StationApiRequests;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures end-to-end latency and body bytes on the wire of the request
+ * classes generated for {@link de.hsesslingen.keim.efs.benchmarks.api.StationApi}
+ * with and without compression. The requests are sent through the pooled
+ * client of the <code>StationApiRequests</code> factory to a local
+ * {@link StubServer}.
+ * <p>
+ * The secondary results <code>requestBytes</code> and
+ * <code>responseBytes</code> are the bytes on the wire, <code>calls</code> the
+ * number of calls in the same iterations.
+ *
+ * @author ben
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CompressionBenchmark {
+
+    @Param({"false", "true"})
+    private boolean compression;
+
+    @Param({"1000"})
+    private int stationCount;
+
+    @Param({"200"})
+    private int bookingCount;
+
+    private StubServer server;
+    private StationApiRequests requests;
+    private List<Booking> bookings;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+
+        public long requestBytes;
+        public long responseBytes;
+        public long calls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            requestBytes = 0;
+            responseBytes = 0;
+            calls = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new StubServer(stationCount);
+
+        var config = new HttpClientConfig()
+                .setContentCompression(compression)
+                .setCompressRequestsAbove(compression ? 1024 : -1);
+
+        requests = new StationApiRequests(server.getBaseUrl(), config);
+
+        bookings = new ArrayList<>();
+
+        for (int i = 0; i < bookingCount; i++) {
+            var booking = new Booking();
+            booking.setId("b-" + i);
+            booking.setStationId("4711");
+            booking.setCustomerId("c-" + (i % 10));
+            booking.setStartTime(1609459200000L + i * 3_600_000L);
+            booking.setEndTime(1609462800000L + i * 3_600_000L);
+            bookings.add(booking);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        requests.close();
+        server.close();
+    }
+
+    @Benchmark
+    public List<Station> getStations(WireBytes wire) {
+        var result = requests.getStations(48.7397, 9.3046).go().getBody();
+        count(wire);
+        return result;
+    }
+
+    @Benchmark
+    public Booking importBookings(WireBytes wire) {
+        var result = requests.importBookings("4711", bookings).go().getBody();
+        count(wire);
+        return result;
+    }
+
+    private void count(WireBytes wire) {
+        wire.requestBytes += server.takeRequestBytes();
+        wire.responseBytes += server.takeResponseBytes();
+        wire.calls++;
+    }
+}
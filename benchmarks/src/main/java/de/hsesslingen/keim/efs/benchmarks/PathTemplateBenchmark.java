@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import static org.springframework.web.util.UriUtils.encodePathSegment;
+
+/**
+ * Compares the former <code>pathTemplate.replace(...)</code> chain of the
+ * generated go() methods with the precompiled segment appending, that is
+ * generated now. Run with <code>-prof gc</code> to see the allocation rates.
+ *
+ * @author ben
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PathTemplateBenchmark {
+
+    private final String baseUrl = "http://localhost:8080";
+    private final String pathTemplate = "/api/providers/{providerId}/stations/{stationId}/availability";
+
+    private String providerId = "nextbike";
+    private String stationId = "4711";
+
+    @Benchmark
+    public String replaceChain() {
+        var path = pathTemplate
+                .replace("{providerId}", providerId)
+                .replace("{stationId}", stationId);
+
+        return baseUrl + path;
+    }
+
+    @Benchmark
+    public String precompiledSegments() {
+        return new StringBuilder(baseUrl.length() + 70)
+                .append(baseUrl)
+                .append("/api/providers/")
+                .append(encodePathSegment(String.valueOf(providerId), UTF_8))
+                .append("/stations/")
+                .append(encodePathSegment(String.valueOf(stationId), UTF_8))
+                .append("/availability")
+                .toString();
+    }
+
+    /**
+     * Same as {@link #precompiledSegments()} without the url-encoding, to
+     * separate the cost of encoding from the cost of assembling.
+     *
+     * @return
+     */
+    @Benchmark
+    public String precompiledSegmentsUnencoded() {
+        return new StringBuilder(baseUrl.length() + 70)
+                .append(baseUrl)
+                .append("/api/providers/")
+                .append(providerId)
+                .append("/stations/")
+                .append(stationId)
+                .append("/availability")
+                .toString();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.benchmarks;
+
+import de.hsesslingen.keim.efs.annotations.RequestClassGenerator;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the {@link RequestClassGenerator} for an api
+ * with a given number of endpoints. Each invocation runs the compiler with
+ * <code>-proc:only</code> on the generated api source, so the time is spent
+ * in parsing, processing and writing the request classes. Requires a JDK.
+ *
+ * @author ben
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(2)
+public class ProcessorBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int endpointCount;
+
+    @Param({"true", "false"})
+    private boolean parallel;
+
+    private JavaCompiler compiler;
+    private StandardJavaFileManager fileManager;
+    private JavaFileObject apiSource;
+    private Path outputDir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        compiler = ToolProvider.getSystemJavaCompiler();
+
+        if (compiler == null) {
+            throw new IllegalStateException("The processor benchmark must run on a JDK.");
+        }
+
+        fileManager = compiler.getStandardFileManager(null, null, null);
+        apiSource = new StringSource("bench/generated/GeneratedApi", createApiSource(endpointCount));
+        outputDir = Files.createTempDirectory("request-class-generator-benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileManager.close();
+
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean generate() {
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var options = List.of(
+                "-proc:only",
+                "-classpath", System.getProperty("java.class.path"),
+                "-s", outputDir.toString(),
+                "-A" + RequestClassGenerator.OPTION_PARALLEL + "=" + parallel
+        );
+
+        var task = compiler.getTask(null, fileManager, diagnostics, options, null, List.of(apiSource));
+        task.setProcessors(List.of(new RequestClassGenerator()));
+
+        if (!task.call()) {
+            throw new IllegalStateException("Generation failed: " + diagnostics.getDiagnostics());
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates the source of an api interface with the given number of
+     * endpoints, each with a path variable, an optional query param and a
+     * header.
+     *
+     * @param endpointCount
+     * @return
+     */
+    static String createApiSource(int endpointCount) {
+        var sb = new StringBuilder()
+                .append("package bench.generated;\n\n")
+                .append("import de.hsesslingen.keim.efs.annotations.GenerateRequestClass;\n")
+                .append("import org.springframework.web.bind.annotation.*;\n\n")
+                .append("@GenerateRequestClass\n")
+                .append("@RequestMapping(path = \"/api\")\n")
+                .append("public interface GeneratedApi {\n");
+
+        for (int i = 0; i < endpointCount; i++) {
+            sb.append("\n    @GetMapping(\"/items").append(i).append("/{id}\")\n")
+                    .append("    String getItem").append(i).append("(\n")
+                    .append("            @PathVariable(name = \"id\") String id,\n")
+                    .append("            @RequestParam(name = \"q\", required = false) String q,\n")
+                    .append("            @RequestHeader(name = \"X-Token\") String token);\n");
+        }
+
+        return sb.append("}\n").toString();
+    }
+
+    private static class StringSource extends SimpleJavaFileObject {
+
+        private final String content;
+
+        public StringSource(String name, String content) {
+            super(URI.create("string:///" + name + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.benchmarks;
+
+import de.hsesslingen.keim.efs.benchmarks.api.Booking;
+import de.hsesslingen.keim.efs.benchmarks.api.Station;
+import de.hsesslingen.keim.efs.benchmarks.api.StationApiRequests.CreateBookingRequest;
+import de.hsesslingen.keim.efs.benchmarks.api.StationApiRequests.GetStationRequest;
+import de.hsesslingen.keim.efs.benchmarks.api.StationApiRequests.GetStationsRequest;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Measures the per-call latency of the request classes generated for
+ * {@link de.hsesslingen.keim.efs.benchmarks.api.StationApi} against a local
+ * {@link StubServer}. The plain {@link RestTemplate} calls are the baseline,
+ * showing the overhead added by the generated code. The prototype calls share
+ * one immutable prototype per endpoint instead of creating a request object
+ * per call. Run with
+ * <code>-prof gc</code> for the allocations per call.
+ *
+ * @author ben
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class RequestClassBenchmark {
+
+    private static final ParameterizedTypeReference<List<Station>> STATION_LIST = new ParameterizedTypeReference<List<Station>>() {
+    };
+
+    @Param({"10", "1000"})
+    private int stationCount;
+
+    private StubServer server;
+    private RestTemplate restTemplate;
+    private String baseUrl;
+    private Booking booking;
+
+    private GetStationRequest.Prototype getStation;
+    private GetStationsRequest.Prototype getStations;
+    private CreateBookingRequest.Prototype createBooking;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new StubServer(stationCount);
+        baseUrl = server.getBaseUrl();
+        restTemplate = new RestTemplate();
+
+        booking = new Booking();
+        booking.setStationId("4711");
+        booking.setCustomerId("c-1");
+        booking.setStartTime(1609459200000L);
+        booking.setEndTime(1609462800000L);
+
+        getStation = new GetStationRequest.Prototype(baseUrl, restTemplate);
+        getStations = new GetStationsRequest.Prototype(baseUrl, restTemplate);
+        createBooking = new CreateBookingRequest.Prototype(baseUrl, restTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Station generatedGetStation() {
+        return new GetStationRequest(baseUrl, "4711", "de")
+                .go(restTemplate)
+                .getBody();
+    }
+
+    @Benchmark
+    public Station prototypeGetStation() {
+        return getStation.go("4711", "de").getBody();
+    }
+
+    @Benchmark
+    public Station plainGetStation() {
+        return restTemplate.getForObject(baseUrl + "/api/stations/{id}?lang={lang}", Station.class, "4711", "de");
+    }
+
+    @Benchmark
+    public List<Station> generatedGetStations() {
+        return new GetStationsRequest(baseUrl, 48.7397, 9.3046, 500)
+                .go(restTemplate)
+                .getBody();
+    }
+
+    @Benchmark
+    public List<Station> prototypeGetStations() {
+        return getStations.go(48.7397, 9.3046, 500).getBody();
+    }
+
+    @Benchmark
+    public List<Station> plainGetStations() {
+        return restTemplate.exchange(baseUrl + "/api/stations?lat={lat}&lon={lon}&radius={radius}",
+                HttpMethod.GET, null, STATION_LIST, 48.7397, 9.3046, 500)
+                .getBody();
+    }
+
+    @Benchmark
+    public Booking generatedCreateBooking() {
+        return new CreateBookingRequest(baseUrl, "4711", "c-1", booking)
+                .go(restTemplate)
+                .getBody();
+    }
+
+    @Benchmark
+    public Booking prototypeCreateBooking() {
+        return createBooking.go("4711", "c-1", booking).getBody();
+    }
+
+    @Benchmark
+    public Booking plainCreateBooking() {
+        var headers = new HttpHeaders();
+        headers.set("X-Customer", "c-1");
+
+        return restTemplate.postForObject(baseUrl + "/api/stations/{id}/bookings",
+                new HttpEntity<>(booking, headers), Booking.class, "4711");
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A minimal http server on the loopback interface, which answers the
+ * endpoints of the sample apis with fixed json payloads. It is based on the
+ * http server of the JDK, so the benchmarks have no further dependencies.
+ * <p>
+ * Responses are sent gzip compressed, if the client accepts it. Gzip
+ * compressed request bodies are decompressed. The body bytes on the wire are
+ * counted in both directions.
+ *
+ * @author ben
+ */
+public class StubServer implements AutoCloseable {
+
+    private static final byte[] STATION = ("{\"id\":\"4711\",\"name\":\"Esslingen Bahnhof\","
+            + "\"lat\":48.7397,\"lon\":9.3046,\"availableVehicles\":7}").getBytes(UTF_8);
+
+    private static final byte[] BOOKING = ("{\"id\":\"b-1\",\"stationId\":\"4711\",\"customerId\":\"c-1\","
+            + "\"startTime\":1609459200000,\"endTime\":1609462800000}").getBytes(UTF_8);
+
+    static {
+        // Otherwise Nagle's algorithm adds about 40 ms to every response.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] stations;
+    private final byte[] stationsGzip;
+
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    /**
+     * Starts the server on a free port.
+     *
+     * @param stationCount Number of stations in the station list response.
+     * @throws IOException
+     */
+    public StubServer(int stationCount) throws IOException {
+        this.stations = createStationList(stationCount);
+        this.stationsGzip = gzip(stations);
+        this.executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        server.createContext("/api/stations", this::handleStations);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of request body bytes received since the last call,
+     * as they were on the wire.
+     *
+     * @return
+     */
+    public long takeRequestBytes() {
+        return requestBytes.sumThenReset();
+    }
+
+    /**
+     * Returns the number of response body bytes sent since the last call, as
+     * they were on the wire.
+     *
+     * @return
+     */
+    public long takeResponseBytes() {
+        return responseBytes.sumThenReset();
+    }
+
+    private void handleStations(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            InputStream requestBody = new CountingInputStream(exchange.getRequestBody(), requestBytes);
+
+            if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                requestBody = new GZIPInputStream(requestBody);
+            }
+
+            drain(requestBody);
+
+            var path = exchange.getRequestURI().getPath();
+            var gzip = acceptsGzip(exchange);
+            byte[] body;
+
+            if ("POST".equals(exchange.getRequestMethod())) {
+                body = BOOKING;
+            } else if (path.equals("/api/stations")) {
+                body = gzip ? stationsGzip : stations;
+            } else {
+                body = STATION;
+            }
+
+            // Only the station list is large enough to be worth compressing.
+            if (body == stationsGzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            responseBytes.add(body.length);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        var acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] data) {
+        var bytes = new ByteArrayOutputStream();
+
+        try (var out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        var buffer = new byte[4096];
+        while (in.read(buffer) >= 0) {
+            // Just consume the request body.
+        }
+    }
+
+    private static byte[] createStationList(int count) {
+        var sb = new StringBuilder("[");
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(new String(STATION, UTF_8).replace("4711", String.valueOf(i)));
+        }
+
+        return sb.append(']').toString().getBytes(UTF_8);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final LongAdder count;
+
+        public CountingInputStream(InputStream in, LongAdder count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = super.read();
+
+            if (b >= 0) {
+                count.increment();
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var n = super.read(b, off, len);
+
+            if (n > 0) {
+                count.add(n);
+            }
+
+            return n;
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
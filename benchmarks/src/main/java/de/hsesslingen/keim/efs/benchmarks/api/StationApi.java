@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.benchmarks.api;
+
+import de.hsesslingen.keim.efs.annotations.GenerateRequestClass;
+import java.util.List;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Sample api, for which the request classes under benchmark are generated.
+ * Covers path variables, required and optional query params, headers and
+ * bodies like the template in <code>RequestClassTemplate</code>.
+ *
+ * @author ben
+ */
+@GenerateRequestClass(compressRequestsAbove = 1024, prototypes = true)
+@RequestMapping(path = "/api/stations")
+public interface StationApi {
+
+    @GetMapping("/{stationId}")
+    Station getStation(
+            @PathVariable(name = "stationId") String stationId,
+            @RequestParam(name = "lang", required = false) String lang
+    );
+
+    @GetMapping("")
+    List<Station> getStations(
+            @RequestParam(name = "lat") Double lat,
+            @RequestParam(name = "lon") Double lon,
+            @RequestParam(name = "radius", required = false) Integer radius
+    );
+
+    @PostMapping("/{stationId}/bookings")
+    Booking createBooking(
+            @PathVariable(name = "stationId") String stationId,
+            @RequestHeader(name = "X-Customer") String customer,
+            @RequestBody Booking booking
+    );
+
+    @PostMapping("/{stationId}/bookings/import")
+    Booking importBookings(
+            @PathVariable(name = "stationId") String stationId,
+            @RequestBody List<Booking> bookings
+    );
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the concurrent calls of an endpoint with a limit, that adapts to the
+ * observed latency (AIMD). The limit grows by one while calls complete fast
+ * and shrinks by {@link #backoffRatio()}, if a call is slow, times out or is
+ * rejected by the upstream. Calls beyond the limit wait up to
+ * {@link #maxWait()} for a free slot and are rejected after that. Only
+ * applies to the <code>REST_TEMPLATE</code> backend.
+ * <p>
+ * On the api interface, it gives each endpoint its own limiter with these
+ * settings. On a method, it overrides the api settings for that endpoint.
+ *
+ * @author ben
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.CLASS)
+public @interface AdaptiveConcurrency {
+
+    int initialLimit() default 20;
+
+    int minLimit() default 1;
+
+    int maxLimit() default 200;
+
+    /**
+     * Factor, by which the limit is multiplied on a slow or failed call.
+     *
+     * @return
+     */
+    double backoffRatio() default 0.9;
+
+    /**
+     * A call counts as slow, if it takes longer than this factor times the
+     * lowest latency seen recently.
+     *
+     * @return
+     */
+    double latencyTolerance() default 2.0;
+
+    /**
+     * Time in milliseconds, that a call waits for a free slot, before it is
+     * rejected.
+     *
+     * @return
+     */
+    long maxWait() default 0;
+}
@@ -23,6 +23,8 @@
  */
 package de.hsesslingen.keim.efs.annotations;
 
+import de.hsesslingen.keim.efs.annotations.GenerateRequestClass.Backend;
+import de.hsesslingen.keim.efs.annotations.GenerateRequestClass.Codec;
 import java.util.ArrayList;
 import java.util.List;
 import javax.lang.model.element.PackageElement;
@@ -41,6 +43,34 @@ public class ApiScope {
     private TypeElement typeElement;
     private String path;
     private List<EndpointScope> endpoints;
+    private Backend backend = Backend.REST_TEMPLATE;
+    private boolean metrics = false;
+    private boolean compressResponses = true;
+    private long compressRequestsAbove = -1;
+    private Codec codec = Codec.DEFAULT;
+    private boolean prototypes = false;
+
+    /**
+     * The retry settings of the api interface or null. They apply to all
+     * idempotent endpoints, that have none of their own.
+     */
+    private Retry retry;
+
+    /**
+     * The circuit breaker settings of the api interface or null.
+     */
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * The concurrency limit settings of the api interface or null. Each
+     * endpoint without own settings gets a limiter with these.
+     */
+    private AdaptiveConcurrency adaptiveConcurrency;
+
+    /**
+     * The rate limit shared by all endpoints of the api or null.
+     */
+    private RateLimit rateLimit;
 
     public ApiScope() {
         endpoints = new ArrayList<>();
@@ -60,4 +90,50 @@ public class ApiScope {
     public String getApiRequestsClassName() {
         return getApiClassName() + "Requests";
     }
+
+    /**
+     * Whether the request classes serialize their bodies with the codec of
+     * the api instead of the message converters of the rest template.
+     *
+     * @return
+     */
+    public boolean usesCodec() {
+        return backend == Backend.REST_TEMPLATE && codec != Codec.DEFAULT;
+    }
+
+    /**
+     * Whether the request classes get immutable prototypes.
+     *
+     * @return
+     */
+    public boolean usesPrototypes() {
+        return backend == Backend.REST_TEMPLATE && prototypes;
+    }
+
+    /**
+     * Whether any endpoint retries, so the api needs a retry budget.
+     *
+     * @return
+     */
+    public boolean usesRetries() {
+        return backend == Backend.REST_TEMPLATE && endpoints.stream().anyMatch(ep -> ep.getRetry() != null);
+    }
+
+    /**
+     * Whether the calls of the api are guarded by a circuit breaker.
+     *
+     * @return
+     */
+    public boolean usesCircuitBreaker() {
+        return backend == Backend.REST_TEMPLATE && circuitBreaker != null;
+    }
+
+    /**
+     * Whether the calls of the api share a rate limit.
+     *
+     * @return
+     */
+    public boolean usesRateLimit() {
+        return backend == Backend.REST_TEMPLATE && rateLimit != null;
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the generated request class of a GET endpoint keep its responses in
+ * an in-process cache. The cache is keyed on the rest template, the resolved
+ * uri and the values of the selected headers. Credential headers are always
+ * part of the key, so responses are not shared between callers with different
+ * credentials. Credentials added by the rest template itself, e.g. by an
+ * interceptor reading the current user, are not seen by the cache. Requests
+ * customized through <code>AbstractRequest</code> are not cached. Only used
+ * by the <code>REST_TEMPLATE</code> backend.
+ *
+ * @author ben
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.CLASS)
+public @interface CacheResponse {
+
+    /**
+     * How long a response is served from the cache.
+     *
+     * @return
+     */
+    long ttl() default 60;
+
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * Maximum number of cached responses. If exceeded, the oldest entries are
+     * evicted first.
+     *
+     * @return
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * Names of the header params, whose values are part of the cache key. If
+     * empty, all header params of the endpoint are. Credential headers are
+     * included in any case.
+     *
+     * @return
+     */
+    String[] varyHeaders() default {};
+}
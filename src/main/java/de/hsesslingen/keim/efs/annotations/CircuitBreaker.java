@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Guards all request classes of an api with a shared circuit breaker and an
+ * optional bulkhead. If too many calls of the api fail, further calls fail
+ * fast for a while instead of tying up threads on a sick upstream. Each base
+ * url gets its own breaker, so one failing provider does not block the others.
+ * Only applies to the <code>REST_TEMPLATE</code> backend.
+ * <p>
+ * The settings can be overridden at runtime with system properties of the
+ * form <code>efs.circuitBreaker.&lt;ApiName&gt;.&lt;attribute&gt;</code>, e.g.
+ * <code>efs.circuitBreaker.StationApi.openDuration=60000</code>.
+ *
+ * @author ben
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface CircuitBreaker {
+
+    /**
+     * Percentage of failed calls in the sliding window, at which the breaker
+     * opens.
+     *
+     * @return
+     */
+    int failureRateThreshold() default 50;
+
+    /**
+     * Minimum number of calls in the sliding window, before the failure rate
+     * is evaluated.
+     *
+     * @return
+     */
+    int minimumCalls() default 20;
+
+    /**
+     * Length of the sliding window in milliseconds.
+     *
+     * @return
+     */
+    long slidingWindow() default 10_000;
+
+    /**
+     * Time in milliseconds, for which the breaker stays open, before a single
+     * probe call is let through.
+     *
+     * @return
+     */
+    long openDuration() default 30_000;
+
+    /**
+     * Maximum number of concurrent calls of the api. Non-positive values
+     * disable the bulkhead.
+     *
+     * @return
+     */
+    int maxConcurrentCalls() default -1;
+
+    /**
+     * Time in milliseconds, that a call waits for a free slot of the bulkhead,
+     * before it is rejected.
+     *
+     * @return
+     */
+    long maxWait() default 0;
+}
@@ -25,7 +25,12 @@ package de.hsesslingen.keim.efs.annotations;
 
 import static de.hsesslingen.keim.efs.annotations.Utils.toUpperCamelCase;
 import java.util.List;
+import java.util.Set;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -43,11 +48,53 @@ import org.springframework.web.bind.annotation.RequestMethod;
 @NoArgsConstructor
 public class EndpointScope {
 
+    private static final Set<String> COLLECTION_TYPES = Set.of(
+            "java.lang.Iterable",
+            "java.util.Collection",
+            "java.util.List",
+            "java.util.Set"
+    );
+
     private RequestMethod method;
     private String path;
     private ExecutableElement javaMethod;
     private List<ParameterScope> params;
 
+    /**
+     * The cache settings of the endpoint or null, if its responses are not
+     * cached.
+     */
+    private CacheResponse cacheResponse;
+
+    /**
+     * The ETag settings of the endpoint or null, if it sends no conditional
+     * requests.
+     */
+    private ConditionalRequest conditionalRequest;
+
+    /**
+     * Whether concurrent identical requests share one http call.
+     */
+    private boolean coalesceRequests;
+
+    /**
+     * The retry settings of the endpoint, or those of the api, or null if it
+     * does not retry.
+     */
+    private Retry retry;
+
+    /**
+     * The concurrency limit settings of the endpoint, or those of the api, or
+     * null if its calls are not limited.
+     */
+    private AdaptiveConcurrency adaptiveConcurrency;
+
+    /**
+     * The rate limit of the endpoint alone, or null. The rate limit of the
+     * api is kept in {@link ApiScope}, as it is shared.
+     */
+    private RateLimit rateLimit;
+
     public String getMethodName() {
         return javaMethod.getSimpleName().toString();
     }
@@ -56,6 +103,58 @@ public class EndpointScope {
         return javaMethod.getReturnType();
     }
 
+    /**
+     * Returns the element type, if the return type is an array or a
+     * collection. Otherwise null.
+     *
+     * @return
+     */
+    public TypeMirror getReturnElementType() {
+        var type = getReturnType();
+
+        if (type.getKind() == TypeKind.ARRAY) {
+            return ((ArrayType) type).getComponentType();
+        }
+
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        var declared = (DeclaredType) type;
+        var name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+
+        if (!COLLECTION_TYPES.contains(name) || declared.getTypeArguments().size() != 1) {
+            return null;
+        }
+
+        return declared.getTypeArguments().get(0);
+    }
+
+    /**
+     * Whether sending the request more than once has the same effect as
+     * sending it once.
+     *
+     * @return
+     */
+    public boolean isIdempotent() {
+        return method == null
+                || method == RequestMethod.GET
+                || method == RequestMethod.HEAD
+                || method == RequestMethod.OPTIONS
+                || method == RequestMethod.PUT
+                || method == RequestMethod.DELETE;
+    }
+
+    /**
+     * Whether the request can be sent again after a failure. This requires an
+     * idempotent endpoint and a body, that is not consumed by sending it.
+     *
+     * @return
+     */
+    public boolean isRetryable() {
+        return isIdempotent() && params.stream().allMatch(p -> p.getStreamingBody() == null);
+    }
+
     public String getRequestClassName() {
         return toUpperCamelCase(getMethodName()) + "Request";
     }
@@ -36,4 +36,106 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.CLASS)
 public @interface GenerateRequestClass {
 
+    /**
+     * The http client backend the generated request classes are built on.
+     *
+     * @return
+     */
+    Backend backend() default Backend.REST_TEMPLATE;
+
+    /**
+     * Whether the go methods of the generated request classes record a
+     * Micrometer timer and error counter in the global registry. The meters
+     * are tagged with api, endpoint and http method. Requires micrometer-core
+     * at runtime.
+     *
+     * @return
+     */
+    boolean metrics() default false;
+
+    /**
+     * Whether the pooled http client of the generated <code>XxxRequests</code>
+     * factory requests compressed responses and decompresses them while they
+     * are read. Only used by the <code>REST_TEMPLATE</code> backend.
+     *
+     * @return
+     */
+    boolean compressResponses() default true;
+
+    /**
+     * Minimum size in bytes of request bodies, that the pooled http client of
+     * the generated <code>XxxRequests</code> factory sends gzip compressed.
+     * Streamed bodies of unknown size are always compressed. Negative values
+     * disable the compression of request bodies. Only used by the
+     * <code>REST_TEMPLATE</code> backend.
+     *
+     * @return
+     */
+    long compressRequestsAbove() default -1;
+
+    /**
+     * How request and response bodies are serialized. Only used by the
+     * <code>REST_TEMPLATE</code> backend.
+     *
+     * @return
+     */
+    Codec codec() default Codec.DEFAULT;
+
+    /**
+     * Whether each request class gets a nested, immutable
+     * <code>Prototype</code>, which takes the params as arguments of its go
+     * methods. A single prototype can be shared by all threads, so no request
+     * object is needed per call. Only applies to the
+     * <code>REST_TEMPLATE</code> backend.
+     *
+     * @return
+     */
+    boolean prototypes() default false;
+
+    public static enum Backend {
+        /**
+         * Blocking request classes extending <code>AbstractRequest</code>,
+         * which send their requests using a <code>RestTemplate</code>.
+         * Supports all annotations and settings.
+         */
+        REST_TEMPLATE,
+        /**
+         * Non-blocking request classes, which send their requests using a
+         * <code>WebClient</code> and return <code>Mono</code> or
+         * <code>Flux</code> results. Requires spring-webflux at runtime.
+         * <p>
+         * Supports the params of the endpoints including streaming bodies,
+         * and <code>metrics</code>. The factory shares the connections of
+         * <code>WebClient.create()</code>, so there is no pooled client to
+         * configure and no <code>Batch</code> or <code>Prototype</code>.
+         * The other settings of this annotation as well as {@link Retry},
+         * {@link CircuitBreaker}, {@link RateLimit},
+         * {@link AdaptiveConcurrency}, {@link CacheResponse},
+         * {@link ConditionalRequest} and {@link CoalesceRequests} are
+         * reported as errors.
+         */
+        WEBCLIENT
+    }
+
+    public static enum Codec {
+        /**
+         * The message converters of the rest template.
+         */
+        DEFAULT,
+        /**
+         * Json, with a Jackson mapper shared by the request classes of the
+         * api and readers and writers prepared once per request class.
+         */
+        JSON,
+        /**
+         * Like <code>JSON</code>, but sends Smile and accepts Smile or json.
+         * Requires jackson-dataformat-smile at runtime.
+         */
+        SMILE,
+        /**
+         * Like <code>JSON</code>, but sends CBOR and accepts CBOR or json.
+         * Requires jackson-dataformat-cbor at runtime.
+         */
+        CBOR
+    }
 }
@@ -0,0 +1,343 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers a fingerprint of each endpoint, for which a request class was
+ * generated, together with the location of the generated file. If the
+ * fingerprint of an endpoint did not change and the file still exists, there
+ * is no need to build and render it again. Its previous content is still
+ * handed to the filer, so the compiler compiles it even if the class output
+ * was wiped in between. Afterwards the previous modification time of the file
+ * is restored, so build tools comparing timestamps do not see a changed
+ * source and recompile what depends on it.
+ * <p>
+ * The cache is persisted as properties file in a directory, which should be
+ * part of the build output.
+ *
+ * @author ben
+ */
+public class GenerationCache {
+
+    private static final String FILE_NAME = "request-class-generator.cache";
+
+    /**
+     * Bump this, whenever the generated code changes for unchanged input.
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    private final Path file;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new TreeMap<>();
+    private final Map<String, FileTime> reusedLastModified = new HashMap<>();
+
+    private GenerationCache(Path file, Map<String, Entry> previous) {
+        this.file = file;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the cache from the given directory. An unreadable cache is
+     * treated as empty.
+     *
+     * @param directory
+     * @return
+     */
+    public static GenerationCache load(Path directory) {
+        var file = directory.resolve(FILE_NAME);
+        var previous = new HashMap<String, Entry>();
+
+        if (Files.isRegularFile(file)) {
+            var props = new Properties();
+
+            try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            } catch (IOException | IllegalArgumentException ex) {
+                props.clear();
+            }
+
+            for (var name : props.stringPropertyNames()) {
+                var entry = Entry.parse(props.getProperty(name));
+
+                if (entry != null) {
+                    previous.put(name, entry);
+                }
+            }
+        }
+
+        return new GenerationCache(file, previous);
+    }
+
+    /**
+     * Returns the previously generated source of the class with the given
+     * name, if it was generated from input with the same fingerprint and its
+     * file can still be read. If so, the entry is kept for the next build.
+     *
+     * @param qualifiedName
+     * @param fingerprint
+     * @return The source or <code>null</code>, if the class must be generated
+     * again.
+     */
+    public String readUpToDate(String qualifiedName, String fingerprint) {
+        var entry = previous.get(qualifiedName);
+
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+            return null;
+        }
+
+        var lastModified = entry.lastModified();
+        var content = entry.read();
+
+        if (content != null && lastModified != null) {
+            current.put(qualifiedName, entry);
+            reusedLastModified.put(qualifiedName, lastModified);
+            return content;
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets the modification time of the source of the given class back to the
+     * one it had before, if the source was found up to date and was written
+     * again with the same content.
+     *
+     * @param qualifiedName
+     * @param location The location, the source was written to.
+     */
+    public void restoreLastModified(String qualifiedName, URI location) {
+        var lastModified = reusedLastModified.get(qualifiedName);
+
+        if (lastModified == null) {
+            return;
+        }
+
+        try {
+            Files.setLastModifiedTime(Paths.get(location), lastModified);
+        } catch (IOException | IllegalArgumentException | FileSystemNotFoundException ex) {
+            // The file merely looks changed then.
+        }
+    }
+
+    public void record(String qualifiedName, String fingerprint, URI location) {
+        current.put(qualifiedName, new Entry(fingerprint, location));
+    }
+
+    /**
+     * Writes all entries, that were recorded or found up to date. Entries of
+     * classes, which were not generated any more, are dropped.
+     *
+     * @throws IOException
+     */
+    public void save() throws IOException {
+        var props = new Properties();
+        current.forEach((name, entry) -> props.setProperty(name, entry.toString()));
+
+        Files.createDirectories(file.getParent());
+
+        try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            props.store(writer, "Fingerprints of the classes generated by the request class generator.");
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the request class of the given endpoint.
+     * Besides the endpoint scope, all annotations on the api, the method and
+     * its parameters are included, so any change to them causes a new
+     * generation. The same is true for the given processor options and for a
+     * new build of the generator itself.
+     *
+     * @param api
+     * @param ep
+     * @param options
+     * @return
+     */
+    public static String fingerprint(ApiScope api, EndpointScope ep, Map<String, String> options) {
+        var sb = new StringBuilder()
+                .append(FORMAT_VERSION).append('\n')
+                .append(getGeneratorStamp()).append('\n')
+                .append(api.getTypeElement().getQualifiedName()).append('\n')
+                .append(api.getPath()).append('\n')
+                .append(api.getTypeElement().getAnnotationMirrors()).append('\n')
+                .append(ep.getMethod()).append('\n')
+                .append(ep.getPath()).append('\n')
+                .append(ep.getJavaMethod()).append('\n')
+                .append(ep.getReturnType()).append('\n')
+                .append(ep.getJavaMethod().getAnnotationMirrors()).append('\n');
+
+        for (var param : ep.getJavaMethod().getParameters()) {
+            sb.append(param.getSimpleName()).append(' ')
+                    .append(param.asType()).append(' ')
+                    .append(param.getAnnotationMirrors()).append('\n');
+        }
+
+        for (var ps : ep.getParams()) {
+            sb.append(ps).append('\n');
+        }
+
+        new TreeMap<>(options).forEach((key, value) -> sb.append(key).append('=').append(value).append('\n'));
+
+        return sha256(sb.toString());
+    }
+
+    /**
+     * Computes the fingerprint of the <code>XxxRequests</code> factory of the
+     * given api, which depends on all of its endpoints.
+     *
+     * @param api
+     * @param options
+     * @return
+     */
+    public static String fingerprint(ApiScope api, Map<String, String> options) {
+        var sb = new StringBuilder("api\n");
+
+        for (var ep : api.getEndpoints()) {
+            sb.append(fingerprint(api, ep, options)).append('\n');
+        }
+
+        return sha256(sb.toString());
+    }
+
+    /**
+     * Returns a stamp of the generator build, derived from the content of the
+     * jar or directory containing this class. It is computed once per
+     * compiler run.
+     *
+     * @return
+     */
+    private static String getGeneratorStamp() {
+        return GeneratorStamp.VALUE;
+    }
+
+    private static String sha256(String value) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            // Every java runtime must support SHA-256.
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        var sb = new StringBuilder(bytes.length * 2);
+
+        for (var b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+    private static class GeneratorStamp {
+
+        private static final String VALUE = compute();
+
+        private static String compute() {
+            try {
+                var source = GenerationCache.class.getProtectionDomain().getCodeSource();
+                var location = Paths.get(source.getLocation().toURI());
+                var digest = MessageDigest.getInstance("SHA-256");
+
+                if (Files.isDirectory(location)) {
+                    // Sorted, so the stamp does not depend on the order of the file system.
+                    try (var files = Files.walk(location)) {
+                        for (var file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                            digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                            digest.update(Files.readAllBytes(file));
+                        }
+                    }
+                } else {
+                    digest.update(Files.readAllBytes(location));
+                }
+
+                return toHex(digest.digest());
+            } catch (Exception ex) {
+                return "unknown";
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String fingerprint;
+        private final URI location;
+
+        public Entry(String fingerprint, URI location) {
+            this.fingerprint = fingerprint;
+            this.location = location;
+        }
+
+        public static Entry parse(String value) {
+            var separator = value.indexOf(' ');
+
+            if (separator < 0) {
+                return null;
+            }
+
+            try {
+                return new Entry(value.substring(0, separator), URI.create(value.substring(separator + 1)));
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+
+        public FileTime lastModified() {
+            try {
+                return Files.getLastModifiedTime(Paths.get(location));
+            } catch (IOException | IllegalArgumentException | FileSystemNotFoundException ex) {
+                return null;
+            }
+        }
+
+        public String read() {
+            try {
+                return Files.readString(Paths.get(location), StandardCharsets.UTF_8);
+            } catch (IOException | IllegalArgumentException | FileSystemNotFoundException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return fingerprint + " " + location;
+        }
+    }
+}
@@ -44,6 +44,12 @@ public class ParameterScope {
     private boolean required = true;
     private String defaultValue = null;
 
+    /**
+     * The kind of streaming body or null, if this is no body or one, that is
+     * serialized as a whole.
+     */
+    private StreamingBody streamingBody = null;
+
     public boolean hasDefaultValue() {
         return defaultValue != null;
     }
@@ -51,4 +57,21 @@ public class ParameterScope {
     public static enum Kind {
         PATH_VARIABLE, QUERY_PARAM, HEADER_PARAM, BODY
     }
+
+    public static enum StreamingBody {
+        INPUT_STREAM("java.io.InputStream"),
+        RESOURCE("org.springframework.core.io.Resource"),
+        ITERATOR("java.util.Iterator"),
+        PUBLISHER("org.reactivestreams.Publisher");
+
+        private final String typeName;
+
+        private StreamingBody(String typeName) {
+            this.typeName = typeName;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+    }
 }
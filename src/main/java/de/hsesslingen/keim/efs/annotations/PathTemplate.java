@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A path template like <code>/stations/{id}/bookings</code> split into its
+ * literal segments and its variable slots. This allows to generate code, that
+ * assembles the path in a single pass instead of replacing each placeholder
+ * at runtime.
+ *
+ * @author ben
+ */
+@Data
+@AllArgsConstructor
+public class PathTemplate {
+
+    private List<Segment> segments;
+
+    /**
+     * Splits the given template into literal segments and variable slots.
+     * Regex constraints in placeholders (like <code>{id:[0-9]+}</code>) are
+     * stripped from the variable name. Unbalanced braces are kept as literal
+     * text.
+     *
+     * @param template
+     * @return
+     */
+    public static PathTemplate parse(String template) {
+        var segments = new ArrayList<Segment>();
+
+        if (template == null || template.isEmpty()) {
+            return new PathTemplate(segments);
+        }
+
+        var literal = new StringBuilder();
+        int i = 0;
+
+        while (i < template.length()) {
+            char c = template.charAt(i);
+
+            if (c != '{') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            int end = findClosingBrace(template, i);
+
+            if (end < 0) {
+                // No matching brace. Take the rest as it is.
+                literal.append(template, i, template.length());
+                break;
+            }
+
+            if (literal.length() > 0) {
+                segments.add(Segment.literal(literal.toString()));
+                literal.setLength(0);
+            }
+
+            var placeholder = template.substring(i + 1, end);
+            var colon = placeholder.indexOf(':');
+            var name = (colon < 0 ? placeholder : placeholder.substring(0, colon)).trim();
+
+            segments.add(Segment.variable(name));
+            i = end + 1;
+        }
+
+        if (literal.length() > 0) {
+            segments.add(Segment.literal(literal.toString()));
+        }
+
+        return new PathTemplate(segments);
+    }
+
+    private static int findClosingBrace(String template, int openIndex) {
+        int depth = 0;
+
+        for (int i = openIndex; i < template.length(); i++) {
+            char c = template.charAt(i);
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the summed length of all literal segments.
+     *
+     * @return
+     */
+    public int getLiteralLength() {
+        return segments.stream()
+                .filter(s -> !s.isVariable())
+                .mapToInt(s -> s.getValue().length())
+                .sum();
+    }
+
+    public int getVariableCount() {
+        return (int) segments.stream()
+                .filter(Segment::isVariable)
+                .count();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Segment {
+
+        /**
+         * The literal text or the variable name, depending on
+         * {@link #variable}.
+         */
+        private String value;
+        private boolean variable;
+
+        public static Segment literal(String text) {
+            return new Segment(text, false);
+        }
+
+        public static Segment variable(String name) {
+            return new Segment(name, true);
+        }
+    }
+}
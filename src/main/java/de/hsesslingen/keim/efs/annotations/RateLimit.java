@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the rate of calls to respect the quota of a provider. On the api
+ * interface, all request classes of the api share one limit. On a method, the
+ * endpoint gets a limit of its own, which applies in addition to the one of
+ * the api. Each base url gets its own limits, as each provider has its own
+ * quota. Retries and hedged calls count against the limit as well. Only
+ * applies to the <code>REST_TEMPLATE</code> backend.
+ *
+ * @author ben
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.CLASS)
+public @interface RateLimit {
+
+    public enum Mode {
+        /**
+         * Calls above the rate wait for their turn, at most for
+         * {@link RateLimit#maxWait()}.
+         */
+        BLOCK,
+        /**
+         * Calls above the rate are rejected immediately.
+         */
+        FAIL_FAST
+    }
+
+    /**
+     * Number of calls per second.
+     *
+     * @return
+     */
+    double permitsPerSecond();
+
+    /**
+     * Number of calls, that may be sent at once after an idle period.
+     *
+     * @return
+     */
+    int burst() default 1;
+
+    Mode mode() default Mode.BLOCK;
+
+    /**
+     * Time in milliseconds, that a call waits at most in the
+     * <code>BLOCK</code> mode. Calls, that would have to wait longer, are
+     * rejected.
+     *
+     * @return
+     */
+    long maxWait() default 1000;
+}
@@ -23,21 +23,37 @@
  */
 package de.hsesslingen.keim.efs.annotations;
 
+import com.squareup.javapoet.JavaFile;
 import de.hsesslingen.keim.efs.annotations.javapoet.JavaPoetRequestClassBuilder;
+import de.hsesslingen.keim.efs.annotations.javapoet.RenderedSource;
 import de.hsesslingen.keim.efs.annotations.ParameterScope.Kind;
+import de.hsesslingen.keim.efs.annotations.ParameterScope.StreamingBody;
 import static de.hsesslingen.keim.efs.annotations.Utils.*;
+import de.hsesslingen.keim.restutils.AbstractRequest;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
 import static javax.tools.Diagnostic.Kind.*;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -51,6 +67,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ValueConstants;
 
 /**
  *
@@ -58,8 +75,51 @@ import org.springframework.web.bind.annotation.RequestParam;
  */
 @SupportedAnnotationTypes("de.hsesslingen.keim.efs.annotations.GenerateRequestClass")
 @SupportedSourceVersion(SourceVersion.RELEASE_14)
+@SupportedOptions({
+    RequestClassGenerator.OPTION_PARALLEL,
+    RequestClassGenerator.OPTION_DUMP_DIR,
+    RequestClassGenerator.OPTION_CACHE_DIR
+})
 public class RequestClassGenerator extends AbstractProcessor {
 
+    /**
+     * Processor option to turn off the parallel rendering of the generated
+     * sources. Rendering is parallel unless this is set to <code>false</code>.
+     */
+    public static final String OPTION_PARALLEL = "efs.requestgen.parallel";
+
+    /**
+     * Processor option naming a directory, to which a copy of each generated
+     * source is written for debugging purposes. Nothing is dumped if this is
+     * not set.
+     */
+    public static final String OPTION_DUMP_DIR = "efs.requestgen.dumpDir";
+
+    /**
+     * Processor option naming a directory in the build output, in which the
+     * fingerprints of the generated classes are kept between builds. If set,
+     * request classes are only built and rendered again, if their input
+     * changed. Otherwise their previously generated source is reused. Leave
+     * this unset for Gradle builds, as Gradle removes the generated files of an
+     * isolating processor before reprocessing.
+     */
+    public static final String OPTION_CACHE_DIR = "efs.requestgen.cacheDir";
+
+    private static final String OPTION_PREFIX = "efs.requestgen.";
+
+    /**
+     * Annotations, that have no effect on request classes of the
+     * <code>WEBCLIENT</code> backend.
+     */
+    private static final Set<String> WEBCLIENT_UNSUPPORTED = Set.of(
+            Retry.class.getCanonicalName(),
+            CircuitBreaker.class.getCanonicalName(),
+            AdaptiveConcurrency.class.getCanonicalName(),
+            RateLimit.class.getCanonicalName(),
+            CacheResponse.class.getCanonicalName(),
+            ConditionalRequest.class.getCanonicalName(),
+            CoalesceRequests.class.getCanonicalName());
+
     public void log(Diagnostic.Kind kind, String message) {
         processingEnv.getMessager().printMessage(kind, message);
     }
@@ -92,22 +152,184 @@ public class RequestClassGenerator extends AbstractProcessor {
                 .map(el -> createApiScope(el))
                 .filter(api -> api != null)
                 .peek(this::collectEndpointScopes)
-                .collect(toList());
+                .collect(toCollection(ArrayList::new));
+
+        // Apis, whose names clash with the generated members, are reported and left out, as their classes would not compile.
+        var builder = new JavaPoetRequestClassBuilder(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+        apis.removeIf(api -> {
+            var clashes = builder.findNameClashes(api);
+            clashes.forEach(message -> processingEnv.getMessager().printMessage(ERROR, message, api.getTypeElement()));
+            return !clashes.isEmpty();
+        });
 
         logNote("Started generating request classes.");
-        
-        for (var api : apis) {
+
+        var cache = getCacheDir() == null ? null : GenerationCache.load(getCacheDir());
+        var options = getGenerationOptions();
+        var fingerprints = new HashMap<String, String>();
+        var javaFiles = new ArrayList<JavaFile>();
+        var unchanged = new ArrayList<RenderedSource>();
+
+        // Creating the java files accesses the compiler's model, which is not thread-safe. So this is done serially...
+        var sortedApis = apis.stream()
+                .sorted(comparing(api -> api.getTypeElement().getQualifiedName().toString()))
+                .collect(toList());
+
+        for (var api : sortedApis) {
+            var originatingElements = List.<Element>of(api.getTypeElement());
+
+            for (var ep : api.getEndpoints()) {
+                if (cache != null) {
+                    var qualifiedName = api.getApiRequestClassPackageName() + "." + ep.getRequestClassName();
+                    var fingerprint = GenerationCache.fingerprint(api, ep, options);
+                    var content = cache.readUpToDate(qualifiedName, fingerprint);
+
+                    if (content != null) {
+                        unchanged.add(new RenderedSource(qualifiedName, content, originatingElements));
+                        continue;
+                    }
+
+                    fingerprints.put(qualifiedName, fingerprint);
+                }
+
+                javaFiles.add(builder.createJavaFile(api, ep));
+            }
+
+            if (cache != null) {
+                var qualifiedName = api.getApiRequestClassPackageName() + "." + api.getApiRequestsClassName();
+                var fingerprint = GenerationCache.fingerprint(api, options);
+                var content = cache.readUpToDate(qualifiedName, fingerprint);
+
+                if (content != null) {
+                    unchanged.add(new RenderedSource(qualifiedName, content, originatingElements));
+                    continue;
+                }
+
+                fingerprints.put(qualifiedName, fingerprint);
+            }
+
+            javaFiles.add(builder.createApiClassJavaFile(api));
+        }
+
+        if (!unchanged.isEmpty()) {
+            logNote("Reused " + unchanged.size() + " generated classes with unchanged input.");
+        }
+
+        // ... rendering the sources however can be done in parallel. The filer and messager are not thread-safe,
+        // so the rendered sources are collected and written on the processor thread in a deterministic order.
+        var sources = (isParallel() ? javaFiles.parallelStream() : javaFiles.stream())
+                .map(RenderedSource::render)
+                .collect(toCollection(ArrayList::new));
+
+        // Unchanged sources are not rendered again, but still handed to the filer, so they get compiled.
+        sources.addAll(unchanged);
+
+        var filer = processingEnv.getFiler();
+        var dumpDir = getDumpDir();
+        var failures = new ArrayList<IOException>();
+
+        for (var source : sources) {
             try {
-                new JavaPoetRequestClassBuilder().buildRequestClasses(api, processingEnv.getFiler());
+                var location = source.writeTo(filer);
+
+                if (cache != null && fingerprints.containsKey(source.getQualifiedName())) {
+                    cache.record(source.getQualifiedName(), fingerprints.get(source.getQualifiedName()), location);
+                } else if (cache != null) {
+                    // Same content as before, so it should not look changed either.
+                    cache.restoreLastModified(source.getQualifiedName(), location);
+                }
+
+                if (dumpDir != null) {
+                    source.writeTo(dumpDir);
+                }
             } catch (IOException ex) {
-                logError("An exception occured:\n");
-                logError(ex.getMessage());
+                failures.add(ex);
             }
         }
 
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException ex) {
+                logWarn("Could not save the generation cache: " + ex.getMessage());
+            }
+        }
+
+        for (var ex : failures) {
+            logError("An exception occured:\n");
+            logError(ex.getMessage());
+        }
+
         return false;
     }
 
+    private boolean isParallel() {
+        return !"false".equalsIgnoreCase(processingEnv.getOptions().get(OPTION_PARALLEL));
+    }
+
+    private Path getDumpDir() {
+        return getPathOption(OPTION_DUMP_DIR);
+    }
+
+    private Path getCacheDir() {
+        return getPathOption(OPTION_CACHE_DIR);
+    }
+
+    private Path getPathOption(String option) {
+        var value = processingEnv.getOptions().get(option);
+
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        return Path.of(value);
+    }
+
+    /**
+     * Returns the options of this processor, that have an effect on the
+     * generated code. Those that only control how code is generated are left
+     * out.
+     *
+     * @return
+     */
+    private Map<String, String> getGenerationOptions() {
+        var options = new HashMap<String, String>();
+
+        processingEnv.getOptions().forEach((key, value) -> {
+            if (key.startsWith(OPTION_PREFIX)
+                    && !key.equals(OPTION_PARALLEL)
+                    && !key.equals(OPTION_DUMP_DIR)
+                    && !key.equals(OPTION_CACHE_DIR)) {
+                options.put(key, value);
+            }
+        });
+
+        // The request classes override the fluent methods of AbstractRequest, so they depend on its version.
+        options.put(OPTION_PREFIX + "abstractRequest", describeAbstractRequest());
+
+        return options;
+    }
+
+    /**
+     * Returns the signatures of the methods of the {@link AbstractRequest} on
+     * the classpath.
+     *
+     * @return
+     */
+    private String describeAbstractRequest() {
+        var elements = processingEnv.getElementUtils();
+        var base = elements.getTypeElement(AbstractRequest.class.getCanonicalName());
+
+        if (base == null) {
+            return "";
+        }
+
+        return ElementFilter.methodsIn(elements.getAllMembers(base)).stream()
+                .map(m -> m.getModifiers() + " " + m.getReturnType() + " " + m)
+                .sorted()
+                .collect(joining(";"));
+    }
+
     /**
      * Iterates over the executable elements in the type element of this api and
      * collects the endpoint scopes of the suitable methods.
@@ -118,11 +340,34 @@ public class RequestClassGenerator extends AbstractProcessor {
         api.getTypeElement().getEnclosedElements().stream()
                 .filter(el -> el instanceof ExecutableElement)
                 .map(el -> ((ExecutableElement) el))
+                .peek(el -> {
+                    if (api.getBackend() != GenerateRequestClass.Backend.REST_TEMPLATE) {
+                        checkWebClientSupport(el);
+                    }
+                })
                 .map(this::createEnpointScope) // return null if unable to create scope.
                 .filter(ep -> ep != null) // filter null values.
+                .peek(ep -> applyApiSettings(api, ep))
                 .forEach(api.getEndpoints()::add);
     }
 
+    /**
+     * Applies the settings of the api interface to an endpoint, that has no
+     * own ones.
+     *
+     * @param api
+     * @param ep
+     */
+    private void applyApiSettings(ApiScope api, EndpointScope ep) {
+        if (ep.getRetry() == null && api.getRetry() != null && ep.isRetryable()) {
+            ep.setRetry(api.getRetry());
+        }
+
+        if (ep.getAdaptiveConcurrency() == null) {
+            ep.setAdaptiveConcurrency(api.getAdaptiveConcurrency());
+        }
+    }
+
     /**
      * If there is already an {@link ApiScope} for {@link typeEl} in
      * {@link apis} (recognized by simpleName), the element from {@link apis}
@@ -135,6 +380,25 @@ public class RequestClassGenerator extends AbstractProcessor {
     private ApiScope createApiScope(TypeElement typeElement) {
         var api = new ApiScope().setTypeElement(typeElement);
 
+        var generate = typeElement.getAnnotation(GenerateRequestClass.class);
+        if (generate != null) {
+            api.setBackend(generate.backend());
+            api.setMetrics(generate.metrics());
+            api.setCompressResponses(generate.compressResponses());
+            api.setCompressRequestsAbove(generate.compressRequestsAbove());
+            api.setCodec(generate.codec());
+            api.setPrototypes(generate.prototypes());
+        }
+
+        api.setRetry(typeElement.getAnnotation(Retry.class));
+        api.setCircuitBreaker(typeElement.getAnnotation(CircuitBreaker.class));
+        api.setAdaptiveConcurrency(typeElement.getAnnotation(AdaptiveConcurrency.class));
+        api.setRateLimit(typeElement.getAnnotation(RateLimit.class));
+
+        if (api.getBackend() != GenerateRequestClass.Backend.REST_TEMPLATE) {
+            checkWebClientSupport(typeElement);
+        }
+
         // If the parent element has a request mapping, we must know the path, if that one is set.
         var mapping = typeElement.getAnnotation(RequestMapping.class);
         if (mapping != null) {
@@ -192,7 +456,104 @@ public class RequestClassGenerator extends AbstractProcessor {
                 .map(this::createParameterScope)
                 .collect(toList());
 
-        return new EndpointScope(method, path, javaMethod, params);
+        var cacheResponse = javaMethod.getAnnotation(CacheResponse.class);
+
+        if (cacheResponse != null && method != null && method != RequestMethod.GET) {
+            logWarn("@CacheResponse is ignored on " + javaMethod.getSimpleName() + ", because it is no GET endpoint.");
+            cacheResponse = null;
+        }
+
+        var conditionalRequest = javaMethod.getAnnotation(ConditionalRequest.class);
+
+        if (conditionalRequest != null && method != null && method != RequestMethod.GET) {
+            logWarn("@ConditionalRequest is ignored on " + javaMethod.getSimpleName() + ", because it is no GET endpoint.");
+            conditionalRequest = null;
+        }
+
+        var coalesceRequests = javaMethod.getAnnotation(CoalesceRequests.class) != null;
+
+        if (coalesceRequests && method != null && method != RequestMethod.GET) {
+            logWarn("@CoalesceRequests is ignored on " + javaMethod.getSimpleName() + ", because it is no GET endpoint.");
+            coalesceRequests = false;
+        }
+
+        var endpoint = new EndpointScope(method, path, javaMethod, params, cacheResponse, conditionalRequest, coalesceRequests, null, null, null);
+
+        var retry = javaMethod.getAnnotation(Retry.class);
+
+        if (retry != null) {
+            checkNoBudgetSettings(javaMethod);
+        }
+
+        if (retry != null && !endpoint.isRetryable()) {
+            logWarn("@Retry is ignored on " + javaMethod.getSimpleName() + ", because it is no idempotent endpoint or has a streaming body.");
+        } else {
+            endpoint.setRetry(retry);
+        }
+
+        endpoint.setAdaptiveConcurrency(javaMethod.getAnnotation(AdaptiveConcurrency.class));
+        endpoint.setRateLimit(javaMethod.getAnnotation(RateLimit.class));
+
+        return endpoint;
+    }
+
+    /**
+     * Reports an error for each annotation and setting on the given api
+     * interface or method, that the <code>WEBCLIENT</code> backend does not
+     * support. They would be ignored otherwise.
+     *
+     * @param element
+     */
+    private void checkWebClientSupport(Element element) {
+        for (var mirror : element.getAnnotationMirrors()) {
+            var type = mirror.getAnnotationType().toString();
+
+            if (WEBCLIENT_UNSUPPORTED.contains(type)) {
+                processingEnv.getMessager().printMessage(ERROR, "@" + type.substring(type.lastIndexOf('.') + 1)
+                        + " is not supported by the WEBCLIENT backend. Remove it or use the REST_TEMPLATE backend.", element, mirror);
+                continue;
+            }
+
+            if (!type.equals(GenerateRequestClass.class.getCanonicalName())) {
+                continue;
+            }
+
+            mirror.getElementValues().forEach((key, value) -> {
+                var name = key.getSimpleName().toString();
+                var unsupported = name.equals("compressResponses")
+                        || name.equals("compressRequestsAbove")
+                        || (name.equals("codec") && !value.getValue().toString().equals(GenerateRequestClass.Codec.DEFAULT.name()))
+                        || (name.equals("prototypes") && Boolean.TRUE.equals(value.getValue()));
+
+                if (unsupported) {
+                    processingEnv.getMessager().printMessage(ERROR, "@GenerateRequestClass(" + name
+                            + ") is not supported by the WEBCLIENT backend. Remove it or use the REST_TEMPLATE backend.", element, mirror, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * The retry budget is shared by all endpoints of an api. So its settings
+     * on a method would be ignored, which is reported as error instead.
+     *
+     * @param javaMethod
+     */
+    private void checkNoBudgetSettings(ExecutableElement javaMethod) {
+        for (var mirror : javaMethod.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().toString().equals(Retry.class.getCanonicalName())) {
+                continue;
+            }
+
+            for (var element : mirror.getElementValues().keySet()) {
+                var name = element.getSimpleName().toString();
+
+                if (name.equals("budgetRatio") || name.equals("budgetMinRetries")) {
+                    processingEnv.getMessager().printMessage(ERROR, "@Retry(" + name + ") is only read from the api interface, "
+                            + "because the retry budget is shared by all endpoints. Move it there.", javaMethod, mirror);
+                }
+            }
+        }
     }
 
     /**
@@ -217,22 +578,22 @@ public class RequestClassGenerator extends AbstractProcessor {
         if ((an = el.getAnnotation(PathVariable.class)) != null) {
             kind = Kind.PATH_VARIABLE;
             var pan = (PathVariable) an;
-            declaredName = pan.name();
+            declaredName = firstNonEmpty(pan.name(), pan.value());
             required = pan.required();
 
         } else if ((an = el.getAnnotation(RequestParam.class)) != null) {
             kind = Kind.QUERY_PARAM;
             var qan = (RequestParam) an;
-            declaredName = qan.name();
+            declaredName = firstNonEmpty(qan.name(), qan.value());
             required = qan.required();
-            defaultValue = qan.defaultValue();
+            defaultValue = declaredDefaultValue(qan.defaultValue());
 
         } else if ((an = el.getAnnotation(RequestHeader.class)) != null) {
             kind = Kind.HEADER_PARAM;
             var han = (RequestHeader) an;
-            declaredName = han.name();
+            declaredName = firstNonEmpty(han.name(), han.value());
             required = han.required();
-            defaultValue = han.defaultValue();
+            defaultValue = declaredDefaultValue(han.defaultValue());
 
         } else if ((an = el.getAnnotation(RequestBody.class)) != null) {
             kind = Kind.BODY;
@@ -248,8 +609,42 @@ public class RequestClassGenerator extends AbstractProcessor {
         }
 
         var nameToUse = declaredName != null ? declaredName : name;
+        var streamingBody = kind == Kind.BODY ? findStreamingBody(type) : null;
 
-        return new ParameterScope(varName, nameToUse, kind, type, required, defaultValue);
+        return new ParameterScope(varName, nameToUse, kind, type, required, defaultValue, streamingBody);
+    }
+
+    /**
+     * Checks whether the given body type is one of those, that are streamed
+     * instead of being serialized as a whole.
+     *
+     * @param type
+     * @return
+     */
+    private StreamingBody findStreamingBody(TypeMirror type) {
+        var types = processingEnv.getTypeUtils();
+
+        for (var candidate : StreamingBody.values()) {
+            var element = processingEnv.getElementUtils().getTypeElement(candidate.getTypeName());
+
+            // Types, that are not on the classpath, can not be used anyway.
+            if (element != null && types.isAssignable(types.erasure(type), types.erasure(element.asType()))) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Spring marks a missing default value with
+     * {@link ValueConstants#DEFAULT_NONE} instead of null.
+     *
+     * @param defaultValue
+     * @return
+     */
+    private String declaredDefaultValue(String defaultValue) {
+        return ValueConstants.DEFAULT_NONE.equals(defaultValue) ? null : defaultValue;
     }
 
 }
@@ -23,8 +23,13 @@
  */
 package de.hsesslingen.keim.efs.annotations;
 
+import de.hsesslingen.keim.efs.annotations.runtime.Uris;
 import de.hsesslingen.keim.restutils.AbstractRequest;
+import java.net.URI;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 
 /**
@@ -33,8 +38,10 @@ import org.springframework.http.ResponseEntity;
  */
 public final class RequestClassTemplate<T, B> extends AbstractRequest<T> {
 
+    private static final String QUERY_QUERY_PARAM1 = "queryParam1";
+    private static final String QUERY_QUERY_PARAM2 = "queryParam2";
+
     private final String baseUrl;
-    private final String pathTemplate = "path/template/{placeholder}";
 
     private String pathVar1;
     private String pathVar2;
@@ -43,6 +50,11 @@ public final class RequestClassTemplate<T, B> extends AbstractRequest<T> {
     private Integer queryParam1;
     private Double queryParam2;
 
+    // Internal fields are prefixed with $, so they do not clash with params or members of AbstractRequest.
+    private boolean $customized;
+    private boolean $customUri;
+    private boolean $customBody;
+
     public RequestClassTemplate(
             String baseUrl,
             String pathVar1,
@@ -81,27 +93,78 @@ public final class RequestClassTemplate<T, B> extends AbstractRequest<T> {
         return this;
     }
 
-    @Override
-    public ResponseEntity<T> go() {        
-        var path = pathTemplate
-                .replace("{var1Name}", pathVar1)
-                
+    public URI resolveUri() {
+        // The path template "path/template/{var1Name}/{var2Name}" is split into
+        // literal segments and variable slots at compile time.
+        var uri = new StringBuilder(baseUrl.length() + 47)
+                .append(baseUrl)
+                .append("path/template/")
+                .append(Uris.encodePathSegment(String.valueOf(pathVar1)))
+                .append("/")
                 // for params with deafult values use the ternary operator.
-                .replace("{var2Name}", pathVar2 == null ? "pathVar2DV" : pathVar2);
+                .append(Uris.encodePathSegment(pathVar2 == null ? "pathVar2DV" : String.valueOf(pathVar2)));
 
-        super.uri(baseUrl + path);
+        // Query params are appended in the same pass. Their names are encoded at compile time.
+        var pathLength = uri.length();
+        Uris.appendEncodedQueryParam(uri, pathLength, QUERY_QUERY_PARAM1, queryParam1);
+        Uris.appendEncodedQueryParam(uri, pathLength, QUERY_QUERY_PARAM2, queryParam2);
 
-        // wrap non-required params in if block like this. (But only if they do not have default values.
-        if (queryParam1 != null) {
-            super.query("queryParam1", queryParam1);
-        }
+        return URI.create(uri.toString());
+    }
+
+    // Every public fluent method of AbstractRequest is overridden like these, as read from the AbstractRequest on the classpath of the compiler.
+    @Override
+    public RequestClassTemplate<T, B> uri(String uri) {
+        super.uri(uri);
+        this.$customized = true;
+        this.$customUri = true;
+        return this;
+    }
+
+    @Override
+    public RequestClassTemplate<T, B> header(String name, Object value) {
+        super.header(name, value);
+        this.$customized = true;
+        return this;
+    }
 
-        super.query("queryParam2", queryParam2);
+    @Override
+    public RequestClassTemplate<T, B> body(Object body) {
+        super.body(body);
+        this.$customized = true;
+        this.$customBody = true;
+        return this;
+    }
 
-        super.body(bodyObj);
+    @Override
+    public ResponseEntity<T> go() {
+        // The fast path cannot see the state kept by AbstractRequest. So it is only taken, if nothing was set there.
+        if ($customized) {
+            return goCustomized();
+        }
+
+        var headers = new HttpHeaders();
+        var entity = new HttpEntity<>(bodyObj, headers);
 
-        super.expect(new ParameterizedTypeReference<T>() {
+        // Generated classes know T and reuse a static RESPONSE_TYPE constant instead.
+        // The uri is passed as URI, so it is not parsed and encoded again.
+        return getRestTemplate().exchange(resolveUri(), HttpMethod.POST, entity, new ParameterizedTypeReference<T>() {
         });
+    }
+
+    private ResponseEntity<T> goCustomized() {
+        // The params are passed on to AbstractRequest, unless the uri or body were set there.
+        if (!$customUri) {
+            super.uri(baseUrl + "path/template/" + pathVar1 + "/" + (pathVar2 == null ? "pathVar2DV" : pathVar2));
+        }
+
+        if (queryParam1 != null) {
+            super.query(QUERY_QUERY_PARAM1, queryParam1);
+        }
+
+        if (!$customBody && bodyObj != null) {
+            super.body(bodyObj);
+        }
 
         return super.go();
     }
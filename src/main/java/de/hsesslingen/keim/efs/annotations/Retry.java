@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Makes the generated request classes retry failed calls with jittered
+ * exponential backoff, and optionally hedge slow calls. Only applies to
+ * idempotent endpoints (GET, PUT, DELETE) of the <code>REST_TEMPLATE</code>
+ * backend.
+ * <p>
+ * On the api interface, it applies to all of its idempotent endpoints and
+ * configures the retry budget of the api. On a method, it overrides the api
+ * settings for that endpoint.
+ * <p>
+ * Retries and hedged calls of all request classes of an api draw from the
+ * same budget, so they cannot multiply the load on a failing upstream.
+ *
+ * @author ben
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.CLASS)
+public @interface Retry {
+
+    /**
+     * Maximum number of attempts including the first one.
+     *
+     * @return
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * Upper bound of the first backoff in milliseconds. The actual backoff is
+     * a random value between zero and the bound.
+     *
+     * @return
+     */
+    long initialBackoff() default 100;
+
+    /**
+     * Upper bound of any backoff in milliseconds.
+     *
+     * @return
+     */
+    long maxBackoff() default 2000;
+
+    /**
+     * Factor, by which the backoff bound grows with each attempt.
+     *
+     * @return
+     */
+    double multiplier() default 2.0;
+
+    /**
+     * Whether a second request is sent, if the first one takes longer than
+     * the observed 95th percentile of the endpoint. The first response wins.
+     *
+     * @return
+     */
+    boolean hedge() default false;
+
+    /**
+     * Minimum delay in milliseconds before a hedged request is sent. Used
+     * until enough latencies are observed, too.
+     *
+     * @return
+     */
+    long minHedgeDelay() default 10;
+
+    /**
+     * Retries per request, that the api may spend on average. Only read from
+     * the api interface. Setting it on a method is an error.
+     *
+     * @return
+     */
+    double budgetRatio() default 0.1;
+
+    /**
+     * Number of retries, that the api may spend regardless of the ratio, e.g.
+     * while there is little traffic. Only read from the api interface.
+     * Setting it on a method is an error.
+     *
+     * @return
+     */
+    int budgetMinRetries() default 10;
+}
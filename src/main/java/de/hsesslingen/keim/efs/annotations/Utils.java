@@ -67,6 +67,23 @@ public class Utils {
         return array[0];
     }
 
+    /**
+     * Returns the first of the given strings, that is neither null nor empty.
+     * Returns null if there is none.
+     *
+     * @param strings
+     * @return
+     */
+    public static String firstNonEmpty(String... strings) {
+        for (var str : strings) {
+            if (str != null && !str.isEmpty()) {
+                return str;
+            }
+        }
+
+        return null;
+    }
+
     public static String nullToEmpty(String str) {
         return str == null ? "" : str;
     }
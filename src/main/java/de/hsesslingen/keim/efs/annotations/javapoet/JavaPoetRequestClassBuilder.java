@@ -24,30 +24,89 @@
 package de.hsesslingen.keim.efs.annotations.javapoet;
 
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
 import de.hsesslingen.keim.efs.annotations.ApiScope;
 import de.hsesslingen.keim.efs.annotations.EndpointScope;
+import de.hsesslingen.keim.efs.annotations.GenerateRequestClass.Backend;
 import de.hsesslingen.keim.efs.annotations.ParameterScope;
+import de.hsesslingen.keim.efs.annotations.ParameterScope.StreamingBody;
+import de.hsesslingen.keim.efs.annotations.PathTemplate;
+import de.hsesslingen.keim.efs.annotations.RateLimit;
+import de.hsesslingen.keim.efs.annotations.Retry;
+import de.hsesslingen.keim.efs.annotations.runtime.ApiCircuitBreaker;
+import de.hsesslingen.keim.efs.annotations.runtime.BatchExecutor;
+import de.hsesslingen.keim.efs.annotations.runtime.BatchResult;
+import de.hsesslingen.keim.efs.annotations.runtime.CircuitBreakerConfig;
+import de.hsesslingen.keim.efs.annotations.runtime.ConcurrencyLimiter;
+import de.hsesslingen.keim.efs.annotations.runtime.ETagCache;
+import de.hsesslingen.keim.efs.annotations.runtime.HttpClientConfig;
+import de.hsesslingen.keim.efs.annotations.runtime.JacksonCodec;
+import de.hsesslingen.keim.efs.annotations.runtime.JsonStreams;
+import de.hsesslingen.keim.efs.annotations.runtime.PerBaseUrl;
+import de.hsesslingen.keim.efs.annotations.runtime.PooledRequestFactory;
+import de.hsesslingen.keim.efs.annotations.runtime.PublisherIterator;
+import de.hsesslingen.keim.efs.annotations.runtime.RateLimiter;
+import de.hsesslingen.keim.efs.annotations.runtime.RequestCoalescer;
+import de.hsesslingen.keim.efs.annotations.runtime.RequestExecutors;
+import de.hsesslingen.keim.efs.annotations.runtime.ResponseCache;
+import de.hsesslingen.keim.efs.annotations.runtime.RetryBudget;
+import de.hsesslingen.keim.efs.annotations.runtime.RetryPolicy;
+import de.hsesslingen.keim.efs.annotations.runtime.StreamingUploads;
+import de.hsesslingen.keim.efs.annotations.runtime.Uris;
 import static de.hsesslingen.keim.efs.annotations.javapoet.FieldSpecUtils.*;
 import static de.hsesslingen.keim.efs.annotations.javapoet.ParameterSpecUtils.*;
+import static de.hsesslingen.keim.efs.annotations.ParameterScope.Kind.BODY;
+import static de.hsesslingen.keim.efs.annotations.ParameterScope.Kind.HEADER_PARAM;
 import static de.hsesslingen.keim.efs.annotations.ParameterScope.Kind.PATH_VARIABLE;
+import static de.hsesslingen.keim.efs.annotations.ParameterScope.Kind.QUERY_PARAM;
 import static de.hsesslingen.keim.efs.annotations.Utils.safeConcat;
 import static de.hsesslingen.keim.efs.annotations.javapoet.MethodSpecUtils.methodSpec;
 import static de.hsesslingen.keim.efs.annotations.javapoet.TypeNameUtils.*;
 import de.hsesslingen.keim.restutils.AbstractRequest;
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import static java.util.Comparator.comparing;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.Stream;
 import javax.annotation.processing.Filer;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.PROTECTED;
 import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeKind;
-import org.slf4j.Logger;
-import static org.slf4j.LoggerFactory.getLogger;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -57,24 +116,169 @@ import org.springframework.web.client.RestTemplate;
 public class JavaPoetRequestClassBuilder {
 
     private static final ClassName STRING = ClassName.get(String.class);
-    private static final Logger logger = getLogger(JavaPoetRequestClassBuilder.class);
+
+    // Referenced by name, so spring-webflux is only required where the WebClient backend is used.
+    private static final ClassName WEB_CLIENT = ClassName.get("org.springframework.web.reactive.function.client", "WebClient");
+    private static final ClassName WEB_CLIENT_REQUEST_HEADERS_SPEC = WEB_CLIENT.nestedClass("RequestHeadersSpec");
+    private static final ClassName MONO = ClassName.get("reactor.core.publisher", "Mono");
+    private static final ClassName FLUX = ClassName.get("reactor.core.publisher", "Flux");
+    private static final ClassName JACKSON_TYPE_REFERENCE = ClassName.get("com.fasterxml.jackson.core.type", "TypeReference");
+    private static final ClassName OBJECT_READER = ClassName.get("com.fasterxml.jackson.databind", "ObjectReader");
+    private static final ClassName OBJECT_WRITER = ClassName.get("com.fasterxml.jackson.databind", "ObjectWriter");
+    private static final ClassName BODY_INSERTERS = ClassName.get("org.springframework.web.reactive.function", "BodyInserters");
+
+    // Referenced by name, so micrometer-core is only required where metrics are enabled.
+    private static final ClassName METRICS = ClassName.get("io.micrometer.core.instrument", "Metrics");
+    private static final ClassName TIMER = ClassName.get("io.micrometer.core.instrument", "Timer");
+    private static final ClassName COUNTER = ClassName.get("io.micrometer.core.instrument", "Counter");
+    private static final String METRIC_NAME = "efs.requests";
+
+    /**
+     * Assumed average length of a path variable value. Used to presize the
+     * uri builder in the generated code.
+     */
+    private static final int PATH_VARIABLE_LENGTH_HINT = 16;
+
+    /**
+     * Names of the local variables and own parameters of the generated
+     * methods, that take the params as arguments. Params with these names are
+     * renamed there.
+     */
+    private static final Set<String> RESERVED_LOCALS = Set.of("restTemplate", "baseUrl", "uri", "headers", "pathLength", "sample", "h", "ex", "executor");
+
+    /**
+     * Names of the fields of the generated request classes, which the fields
+     * of the params would clash with.
+     */
+    private static final Set<String> RESERVED_FIELDS = Set.of("baseUrl", "restTemplate", "webClient");
+
+    /**
+     * Names of the methods of the generated factory classes, which the
+     * factory methods of the endpoints would clash with.
+     */
+    private static final Set<String> RESERVED_FACTORY_METHODS = Set.of("close", "getBaseUrl", "getRestTemplate", "getWebClient", "circuitBreaker", "rateLimiter");
+
+    private final Elements elements;
+    private final Types types;
+
+    /**
+     * @param elements
+     * @param types Used to read the methods of {@link AbstractRequest}, that
+     * the request classes override.
+     */
+    public JavaPoetRequestClassBuilder(Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+    }
+
+    /**
+     * Creates the java files of all request classes of the given api.
+     * <p>
+     * This accesses the compiler's model of the api and must therefore not be
+     * called concurrently. The returned files however can be rendered in
+     * parallel.
+     *
+     * @param api
+     * @return
+     */
+    public List<JavaFile> createJavaFiles(ApiScope api) {
+        var files = api.getEndpoints().stream()
+                .map(ep -> createJavaFile(api, ep))
+                .collect(toList());
+
+        files.add(createApiClassJavaFile(api));
+        return files;
+    }
+
+    /**
+     * Creates the java file of the request class of a single endpoint. The
+     * same restrictions as for {@link #createJavaFiles(ApiScope)} apply.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    public JavaFile createJavaFile(ApiScope api, EndpointScope ep) {
+        return JavaFile.builder(api.getApiRequestClassPackageName(), createRequestClass(api, ep)).build();
+    }
+
+    /**
+     * Creates the java file of the <code>XxxRequests</code> factory of the
+     * given api. The same restrictions as for
+     * {@link #createJavaFiles(ApiScope)} apply.
+     *
+     * @param api
+     * @return
+     */
+    public JavaFile createApiClassJavaFile(ApiScope api) {
+        return JavaFile.builder(api.getApiRequestClassPackageName(), createApiClass(api)).build();
+    }
 
     public void buildRequestClasses(ApiScope api, Filer filer) throws IOException {
-        api.getEndpoints().stream()
-                .forEach(ep -> {
-                    var spec = createRequestClass(api, ep);
-
-                    var javaFile = JavaFile.builder(api.getApiRequestClassPackageName(), spec)
-                            .build();
-
-                    try {
-                        javaFile.writeTo(System.out);
-                        javaFile.writeTo(filer);
-                    } catch (IOException ex) {
-                        logger.error("{}", ex);
-                        throw new RuntimeException(ex);
-                    }
-                });
+        for (var javaFile : createJavaFiles(api)) {
+            RenderedSource.render(javaFile).writeTo(filer);
+        }
+    }
+
+    /**
+     * Finds the names of the given api, that would clash with the members
+     * generated for it. The generated code would not compile then, so these
+     * are reported instead.
+     *
+     * @param api
+     * @return A message for each clash.
+     */
+    public List<String> findNameClashes(ApiScope api) {
+        var clashes = new ArrayList<String>();
+        var methodNames = new HashSet<String>();
+
+        for (var ep : api.getEndpoints()) {
+            var name = ep.getMethodName();
+
+            if (!methodNames.add(name)) {
+                clashes.add("The endpoints " + api.getApiClassName() + "." + name + " would share the request class " + ep.getRequestClassName() + ". Rename one of them.");
+            }
+
+            if (RESERVED_FACTORY_METHODS.contains(name)) {
+                clashes.add("The endpoint " + api.getApiClassName() + "." + name + " clashes with the method " + name
+                        + "() of " + api.getApiRequestsClassName() + ". Rename it.");
+            }
+
+            for (var ps : ep.getParams()) {
+                var type = typeName(ps.getType());
+                var clashesWithMethod = (ps.getVariableName().equals("go") && (type.equals(ClassName.get(RestTemplate.class)) || type.equals(WEB_CLIENT)))
+                        || (ps.getVariableName().equals("goAsync") && type.equals(ClassName.get(Executor.class)));
+
+                if (RESERVED_FIELDS.contains(ps.getVariableName()) || clashesWithMethod) {
+                    clashes.add("The param " + ps.getVariableName() + " of " + api.getApiClassName() + "." + name
+                            + " clashes with a member of " + ep.getRequestClassName()
+                            + ". Rename the variable and keep the name of the param in its annotation, e.g. @RequestParam(name = \"" + ps.getName() + "\").");
+                }
+            }
+        }
+
+        // The batch and prototype factory methods of one endpoint must not clash with the factory method of another.
+        var suffixes = new ArrayList<String>();
+
+        if (api.getBackend() == Backend.REST_TEMPLATE) {
+            suffixes.add("Batch");
+        }
+
+        if (api.usesPrototypes()) {
+            suffixes.add("Prototype");
+        }
+
+        for (var ep : api.getEndpoints()) {
+            for (var suffix : suffixes) {
+                if (methodNames.contains(ep.getMethodName() + suffix)) {
+                    clashes.add("The endpoint " + api.getApiClassName() + "." + ep.getMethodName() + suffix + " clashes with the method "
+                            + ep.getMethodName() + suffix + "() of " + api.getApiRequestsClassName() + ", that creates a " + suffix
+                            + " of " + ep.getRequestClassName() + ". Rename it.");
+                }
+            }
+        }
+
+        return clashes;
     }
 
     private MethodSpec.Builder createConstructorWithBasicParams() {
@@ -137,110 +341,1236 @@ public class JavaPoetRequestClassBuilder {
         return m.build();
     }
 
-    private MethodSpec createGoOverrideMethod(EndpointScope ep) {
-        var m = methodSpec("go", PUBLIC)
-                .addAnnotation(Override.class);
-
-        if (ep.getReturnType().getKind() == TypeKind.VOID) {
-            m.returns(TypeName.VOID);
-        } else {
-            m.returns(paramsTypeName(ResponseEntity.class, ep.getReturnType()));
-        }
+    /**
+     * Creates the statement, that assembles the path of the endpoint in the
+     * local {@link StringBuilder} variable <code>uri</code>. The path template
+     * is split into literal segments and variable slots at compile time, so
+     * the generated code only appends to a presized builder and url-encodes
+     * the path variable values.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private CodeBlock createUriCode(ApiScope api, EndpointScope ep) {
+        var template = PathTemplate.parse(safeConcat(api.getPath(), ep.getPath()));
+        var capacity = template.getLiteralLength() + template.getVariableCount() * PATH_VARIABLE_LENGTH_HINT;
 
-        var sb = new StringBuilder()
-                .append("var path = pathTemplate\n");
+        var appends = new ArrayList<CodeBlock>();
+        appends.add(CodeBlock.of(".append(baseUrl)"));
 
-        // Build path template converter statement...
-        for (var pv : ep.getParams()) {
-            if (pv.getKind() != PATH_VARIABLE) {
+        for (var segment : template.getSegments()) {
+            if (!segment.isVariable()) {
+                appends.add(CodeBlock.of(".append($S)", segment.getValue()));
                 continue;
             }
 
-            // Add replacement statement that replaces the path variable placeholder in the template with the actual value.
-            sb
-                    .append("\t.replace(\"{")
-                    .append(pv.getVariableName())
-                    .append("}\", ");
+            var pv = findPathVariable(ep, segment.getValue());
+
+            if (pv == null) {
+                // No parameter for this placeholder. Keep it untouched like before.
+                appends.add(CodeBlock.of(".append($S)", "{" + segment.getValue() + "}"));
+                continue;
+            }
 
             // If there is a default value for this param. Add it with the ternary operator...
             if (pv.hasDefaultValue()) {
-                sb
-                        .append(pv.getVariableName())
-                        .append(" == null ? \"")
-                        .append(pv.getDefaultValue())
-                        .append("\" : ");
+                appends.add(CodeBlock.of(".append($T.encodePathSegment($L == null ? $S : $T.valueOf($L)))",
+                        Uris.class, localName(pv), pv.getDefaultValue(), String.class, localName(pv)));
+            } else {
+                appends.add(CodeBlock.of(".append($T.encodePathSegment($T.valueOf($L)))",
+                        Uris.class, String.class, localName(pv)));
             }
+        }
+
+        return CodeBlock.builder()
+                .add("var uri = new $T(baseUrl.length() + $L)\n", StringBuilder.class, capacity)
+                .indent().indent()
+                .add(CodeBlock.join(appends, "\n"))
+                .add(";\n")
+                .unindent().unindent()
+                .build();
+    }
+
+    private ParameterScope findPathVariable(EndpointScope ep, String name) {
+        return ep.getParams().stream()
+                .filter(ps -> ps.getKind() == PATH_VARIABLE)
+                .filter(ps -> name.equals(ps.getVariableName()) || name.equals(ps.getName()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Creates the constants holding the names of query and header params. The
+     * query param names are encoded at compile time already.
+     *
+     * @param ep
+     * @return
+     */
+    private List<FieldSpec> createParamNameConstants(EndpointScope ep) {
+        return ep.getParams().stream()
+                .filter(ps -> ps.getKind() == QUERY_PARAM || ps.getKind() == HEADER_PARAM)
+                .map(ps -> fieldSpecBldr(STRING, paramNameConstant(ps), PRIVATE, STATIC, FINAL)
+                .initializer("$S", ps.getKind() == QUERY_PARAM ? Uris.encodeQueryParam(ps.getName()) : ps.getName())
+                .build())
+                .collect(toList());
+    }
+
+    private String paramNameConstant(ParameterScope ps) {
+        var prefix = ps.getKind() == QUERY_PARAM ? "QUERY_" : "HEADER_";
+        return prefix + ps.getVariableName().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the expression of the value of the given param, which falls
+     * back to its default value if there is one.
+     *
+     * @param ps
+     * @param local Whether the value is read from the param of a static
+     * method instead of the field.
+     * @return
+     */
+    private CodeBlock paramValueCode(ParameterScope ps, boolean local) {
+        var ref = paramRef(ps, local);
 
-            sb
-                    .append(pv.getVariableName())
-                    .append(")\n");
+        if (ps.hasDefaultValue()) {
+            return CodeBlock.of("$1L == null ? $2S : $1L", ref, ps.getDefaultValue());
         }
 
-        // Add uri setter with baseUrl and path...
-        sb.append("\t;\n\nsuper.uri(baseUrl + path);\n\n");
+        return CodeBlock.of("$L", ref);
+    }
+
+    private String paramRef(ParameterScope ps, boolean local) {
+        return local ? localName(ps) : "this." + ps.getVariableName();
+    }
+
+    /**
+     * Returns the name of the given param in the methods taking it as argument,
+     * which avoids clashes with their local variables and own parameters.
+     *
+     * @param ps
+     * @return
+     */
+    private String localName(ParameterScope ps) {
+        var name = ps.getVariableName();
+        return RESERVED_LOCALS.contains(name) ? name + "Value" : name;
+    }
+
+    /**
+     * Adds the given params to a static method under their local names.
+     *
+     * @param m
+     * @param params
+     */
+    private void addLocalParams(MethodSpec.Builder m, List<ParameterScope> params) {
+        params.forEach(ps -> m.addParameter(paramSpec(ps.getType(), localName(ps))));
+    }
+
+    /**
+     * Returns the arguments passing the fields of the given params.
+     *
+     * @param params
+     * @return
+     */
+    private CodeBlock fieldArgs(List<ParameterScope> params) {
+        return params.stream()
+                .map(ps -> CodeBlock.of("this.$L", ps.getVariableName()))
+                .collect(CodeBlock.joining(", "));
+    }
+
+    private List<ParameterScope> findUriParams(EndpointScope ep) {
+        return ep.getParams().stream()
+                .filter(ps -> ps.getKind() == PATH_VARIABLE || ps.getKind() == QUERY_PARAM)
+                .collect(toList());
+    }
+
+    /**
+     * Creates the method, that assembles path and query of the request uri in
+     * a single pass.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private MethodSpec createResolveUriMethod(ApiScope api, EndpointScope ep) {
+        var uriParams = findUriParams(ep);
+        var args = CodeBlock.of("baseUrl$L", uriParams.isEmpty() ? "" : ", " + fieldArgs(uriParams));
+
+        return methodSpec("resolveUri", PUBLIC)
+                .addJavadoc("Returns the complete and encoded uri of this request.\n")
+                .returns(URI.class)
+                .addStatement("return resolveUri($L)", args)
+                .build();
+    }
+
+    /**
+     * Creates the static variant of {@link #createResolveUriMethod}, which
+     * takes the params as arguments.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private MethodSpec createStaticResolveUriMethod(ApiScope api, EndpointScope ep) {
+        var m = methodSpec("resolveUri", PRIVATE, STATIC)
+                .addParameter(STRING, "baseUrl")
+                .returns(URI.class);
+
+        addLocalParams(m, findUriParams(ep));
+
+        // Assemble the uri from the precompiled path template...
+        m.addCode(createUriCode(api, ep));
+
+        if (ep.getParams().stream().anyMatch(ps -> ps.getKind() == QUERY_PARAM)) {
+            m.addStatement("var pathLength = uri.length()");
+        }
+
+        // ... and append the query params with their encoded names.
+        ep.getParams().stream()
+                .filter(ps -> ps.getKind() == QUERY_PARAM)
+                .forEach(ps -> m.addStatement("$T.appendEncodedQueryParam(uri, pathLength, $L, $L)",
+                Uris.class, paramNameConstant(ps), paramValueCode(ps, true)));
+
+        return m.addStatement("return $T.create(uri.toString())", URI.class).build();
+    }
+
+    /**
+     * Creates the statements, that add the header params to the given target,
+     * which offers a <code>header(String, String)</code> like method.
+     *
+     * @param ep
+     * @param addHeader Format of the call, that adds a header. Takes the name
+     * and the value as arguments.
+     * @param local Whether the values are read from the params of a static
+     * method instead of the fields.
+     * @return
+     */
+    private CodeBlock createHeaderCode(EndpointScope ep, String addHeader, boolean local) {
+        var code = CodeBlock.builder();
 
-        // Add rest of params (non-path-variables)...
         for (var ps : ep.getParams()) {
-            if (ps.getKind() == PATH_VARIABLE) {
+            if (ps.getKind() != HEADER_PARAM) {
+                continue;
+            }
+
+            var value = CodeBlock.of("$T.valueOf($L)", String.class, paramValueCode(ps, local));
+
+            if (ps.isRequired() || ps.hasDefaultValue()) {
+                code.addStatement(addHeader, paramNameConstant(ps), value);
+            } else {
+                code.beginControlFlow("if ($L != null)", paramRef(ps, local))
+                        .addStatement(addHeader, paramNameConstant(ps), value)
+                        .endControlFlow();
+            }
+        }
+
+        return code.build();
+    }
+
+    private ParameterScope findBody(EndpointScope ep) {
+        return ep.getParams().stream()
+                .filter(ps -> ps.getKind() == BODY)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Creates a go method for endpoints returning a collection, which parses
+     * the json array of the response incrementally.
+     *
+     * @param ep
+     * @return
+     */
+    private MethodSpec createGoStreamingMethod(ApiScope api, EndpointScope ep) {
+        var m = methodSpec("goStreaming", PUBLIC)
+                .addJavadoc("Sends the request and returns the elements of the response as lazy stream, which parses them one by one.\n"
+                        + "The stream must be closed, which also closes the connection and frees the slots of the concurrency limits.\n")
+                .returns(paramsTypeName(ClassName.get(Stream.class), typeName(ep.getReturnElementType()).box()));
+
+        m.beginControlFlow("if ($$customized)")
+                .addStatement("throw new $T($S)", IllegalStateException.class,
+                        "goStreaming() does not support the uri, query params, headers or body set through AbstractRequest.")
+                .endControlFlow();
+
+        m.addStatement("var headers = new $T()", HttpHeaders.class);
+        m.addCode(createHeaderCode(ep, "headers.add($L, $L)", false));
+
+        var body = findBody(ep);
+        var httpMethod = ep.getMethod() == null ? RequestMethod.GET : ep.getMethod();
+
+        m.addStatement("var uri = resolveUri()");
+        m.addCode("\n");
+
+        var call = CodeBlock.of("$T.exchange(getRestTemplate(), uri, $T.$L, headers, $L, ELEMENT_TYPE)",
+                JsonStreams.class, HttpMethod.class, httpMethod.name(), body == null ? "null" : "this." + body.getVariableName());
+
+        return m.addCode(createStreamingCallCode(api, createGuardCode(api, ep, call, true)))
+                .build();
+    }
+
+    private MethodSpec createGoOverrideMethod(ApiScope api, EndpointScope ep) {
+        var m = methodSpec("go", PUBLIC)
+                .addAnnotation(Override.class)
+                .returns(goReturnType(ep));
+
+        var args = CodeBlock.of("getRestTemplate(), baseUrl$L", ep.getParams().isEmpty() ? "" : ", " + fieldArgs(ep.getParams()));
+        var ret = ep.getReturnType().getKind() == TypeKind.VOID ? "" : "return ";
+
+        // The fast path cannot see the state kept by AbstractRequest. So it is only taken, if nothing was set there.
+        m.beginControlFlow("if ($$customized)");
+
+        if (ret.isEmpty()) {
+            m.addStatement("goCustomized()").addStatement("return");
+        } else {
+            m.addStatement("return goCustomized()");
+        }
+
+        return m.endControlFlow()
+                .addStatement("$Lsend($L)", ret, args)
+                .build();
+    }
+
+    /**
+     * Creates the overrides of the public fluent methods of
+     * {@link AbstractRequest}, i.e. all that return the request itself, like
+     * those setting the uri, query params, headers or body. They are read from
+     * the {@link AbstractRequest} on the classpath of the compiler, so
+     * methods added in later versions are covered as well. The overrides mark
+     * the request as customized, so it is sent through
+     * {@link AbstractRequest}, which honors these settings. Methods are left
+     * out, if the builder method of a param has the same signature.
+     *
+     * @param requestClass
+     * @param ep
+     * @return
+     */
+    private List<MethodSpec> createAbstractRequestOverrides(ClassName requestClass, EndpointScope ep) {
+        var overrides = new ArrayList<MethodSpec>();
+        var base = elements.getTypeElement(AbstractRequest.class.getCanonicalName());
+        var superType = types.getDeclaredType(base, boxed(ep.getReturnType()));
+
+        for (var method : ElementFilter.methodsIn(elements.getAllMembers(base))) {
+            if (!isFluentMethod(base, method)) {
                 continue;
             }
 
-            if (!ps.isRequired()) {
-                sb
-                        .append("if (this.")
-                        .append(ps.getVariableName())
-                        .append(" != null) {\n\t");
+            var name = method.getSimpleName().toString();
+            var type = (ExecutableType) types.asMemberOf(superType, method);
+            var paramTypes = type.getParameterTypes().stream().map(TypeName::get).collect(toList());
+
+            if (paramTypes.size() == 1 && hasParamMethod(ep, name, paramTypes.get(0))) {
+                continue;
+            }
+
+            var m = methodSpec(name, PUBLIC)
+                    .addAnnotation(Override.class)
+                    .returns(requestClass)
+                    .varargs(method.isVarArgs());
+
+            method.getTypeParameters().forEach(tp -> m.addTypeVariable(TypeVariableName.get(tp)));
+            type.getThrownTypes().forEach(t -> m.addException(TypeName.get(t)));
+
+            var args = new ArrayList<CodeBlock>();
+
+            for (int i = 0; i < paramTypes.size(); i++) {
+                // The names are only known, if AbstractRequest was compiled with -parameters.
+                var paramName = paramTypes.size() == 1 ? name : method.getParameters().get(i).getSimpleName().toString();
+                m.addParameter(paramTypes.get(i), paramName);
+                args.add(CodeBlock.of("$L", paramName));
             }
 
-            sb.append("super.");
-
-            switch (ps.getKind()) {
-                case BODY:
-                    sb
-                            .append("body(this.")
-                            .append(ps.getVariableName());
-                    break;
-                case HEADER_PARAM:
-                    sb
-                            .append("header(\"")
-                            .append(ps.getName())
-                            .append("\", this.")
-                            .append(ps.getVariableName());
-                    break;
-                case QUERY_PARAM:
-                    sb
-                            .append("query(\"")
-                            .append(ps.getName())
-                            .append("\", this.")
-                            .append(ps.getVariableName());
+            m.addStatement("super.$L($L)", name, CodeBlock.join(args, ", "))
+                    .addStatement("this.$$customized = true");
+
+            if (name.equals("uri") && paramTypes.equals(List.of(STRING))) {
+                m.addStatement("this.$$customUri = true");
+            } else if (name.equals("body") && paramTypes.equals(List.of(TypeName.OBJECT))) {
+                m.addStatement("this.$$customBody = true");
             }
 
-            sb.append(");\n");
+            overrides.add(m.addStatement("return this").build());
+        }
+
+        return overrides;
+    }
+
+    /**
+     * Whether the given method of {@link AbstractRequest} is public, can be
+     * overridden and returns the request itself.
+     */
+    private boolean isFluentMethod(TypeElement base, ExecutableElement method) {
+        var modifiers = method.getModifiers();
+
+        return modifiers.contains(PUBLIC)
+                && !modifiers.contains(STATIC)
+                && !modifiers.contains(FINAL)
+                && types.isSameType(types.erasure(method.getReturnType()), types.erasure(base.asType()));
+    }
+
+    private TypeMirror boxed(TypeMirror type) {
+        if (type.getKind() == TypeKind.VOID) {
+            return elements.getTypeElement(Void.class.getCanonicalName()).asType();
+        }
+
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass((PrimitiveType) type).asType();
+        }
+
+        return type;
+    }
+
+    private boolean hasParamMethod(EndpointScope ep, String name, TypeName type) {
+        return ep.getParams().stream()
+                .anyMatch(ps -> name.equals(ps.getVariableName()) && type.equals(typeName(ps.getType())));
+    }
+
+    /**
+     * Creates the method, that sends a request customized through the methods
+     * of {@link AbstractRequest}. Like before the fast path existed, the
+     * params are passed on to {@link AbstractRequest}, unless the uri or body
+     * were set there. The limiters, the circuit breaker and the retries still
+     * apply, but the response cache, conditional requests, coalescing, the
+     * codec and streaming bodies are bypassed.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private MethodSpec createGoCustomizedMethod(ApiScope api, EndpointScope ep) {
+        var m = methodSpec("goCustomized", PRIVATE)
+                .returns(goReturnType(ep));
 
-            if (!ps.isRequired()) {
-                sb.append("}\n");
+        m.beginControlFlow("if (!$$customUri)")
+                .addStatement("super.uri($L)", createRawPathCode(api, ep))
+                .endControlFlow();
+
+        for (var ps : ep.getParams()) {
+            if (ps.getKind() != QUERY_PARAM) {
+                continue;
             }
 
-            sb.append("\n\n");
+            if (ps.isRequired() || ps.hasDefaultValue()) {
+                m.addStatement("super.query($S, $L)", ps.getName(), paramValueCode(ps, false));
+            } else {
+                m.beginControlFlow("if (this.$L != null)", ps.getVariableName())
+                        .addStatement("super.query($S, this.$L)", ps.getName(), ps.getVariableName())
+                        .endControlFlow();
+            }
         }
 
-        // Inject expected type reference...
-        sb.append("super.expect(new org.springframework.core.ParameterizedTypeReference<");
+        m.addCode(createHeaderCode(ep, "super.header($L, $L)", false));
+
+        var body = findBody(ep);
+
+        if (body != null) {
+            m.beginControlFlow("if (!$$customBody && this.$L != null)", body.getVariableName())
+                    .addStatement("super.body(this.$L)", body.getVariableName())
+                    .endControlFlow();
+        }
 
+        m.addStatement("super.expect(RESPONSE_TYPE)");
+        m.addCode("\n");
+        m.addCode(createCallCode(api, createGuardCode(api, ep, CodeBlock.of("super.go()"))));
+
+        return m.build();
+    }
+
+    /**
+     * Creates the expression of the unencoded path, which is passed to
+     * {@link AbstractRequest}, that encodes it itself.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private CodeBlock createRawPathCode(ApiScope api, EndpointScope ep) {
+        var template = PathTemplate.parse(safeConcat(api.getPath(), ep.getPath()));
+        var parts = new ArrayList<CodeBlock>();
+        parts.add(CodeBlock.of("baseUrl"));
+
+        for (var segment : template.getSegments()) {
+            var pv = segment.isVariable() ? findPathVariable(ep, segment.getValue()) : null;
+
+            if (pv == null) {
+                parts.add(CodeBlock.of("$S", segment.isVariable() ? "{" + segment.getValue() + "}" : segment.getValue()));
+            } else {
+                parts.add(CodeBlock.of("$T.valueOf($L)", String.class, paramValueCode(pv, false)));
+            }
+        }
+
+        return CodeBlock.join(parts, " + ");
+    }
+
+    private TypeName goReturnType(EndpointScope ep) {
         if (ep.getReturnType().getKind() == TypeKind.VOID) {
-            sb.append("Void.class");
+            return TypeName.VOID;
+        }
+
+        return paramsTypeName(ResponseEntity.class, ep.getReturnType());
+    }
+
+    /**
+     * Creates the static method, that sends the request. It only reads its
+     * arguments and the constants of the class, so it is shared by the
+     * mutable request objects and their immutable prototypes.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private MethodSpec createSendMethod(ApiScope api, EndpointScope ep) {
+        var m = methodSpec("send", PRIVATE, STATIC)
+                .returns(goReturnType(ep))
+                .addParameter(RestTemplate.class, "restTemplate")
+                .addParameter(STRING, "baseUrl");
+
+        addLocalParams(m, ep.getParams());
+
+        // The request is sent directly with the rest template, so the uri assembled by resolveUri() is not parsed again.
+        m.addStatement("var headers = new $T()", HttpHeaders.class);
+        m.addCode(createHeaderCode(ep, "headers.add($L, $L)", true));
+
+        var body = findBody(ep);
+        var httpMethod = ep.getMethod() == null ? RequestMethod.GET : ep.getMethod();
+        var uriParams = findUriParams(ep);
+
+        m.addStatement("var uri = resolveUri(baseUrl$L)", uriParams.stream()
+                .map(ps -> CodeBlock.of(", $L", localName(ps)))
+                .collect(CodeBlock.joining("")));
+        m.addCode("\n");
+
+        CodeBlock call;
+
+        if (body != null && body.getStreamingBody() != null) {
+            // Streaming bodies are written to the connection directly instead of being serialized by the message converters.
+            var streamingBodyCode = body.getStreamingBody() == StreamingBody.PUBLISHER
+                    ? CodeBlock.of("$1L == null ? null : new $2T<>($1L)", localName(body), PublisherIterator.class)
+                    : CodeBlock.of("$L", localName(body));
+
+            call = CodeBlock.of("$T.exchange(restTemplate, uri, $T.$L, headers, $L, RESPONSE_TYPE)",
+                    StreamingUploads.class, HttpMethod.class, httpMethod.name(), streamingBodyCode);
+        } else if (ep.getConditionalRequest() != null) {
+            // The ETag cache adds the If-None-Match header and passes the headers on.
+            call = CodeBlock.of("ETAGS.execute($T.key(restTemplate, uri, headers$L), headers, h -> $L)",
+                    ResponseCache.class, createKeyHeadersCode(ep, List.of()), createExchangeCode(api, ep, "h"));
         } else {
-            sb.append(ep.getReturnType().toString());
+            call = createExchangeCode(api, ep, "headers");
         }
 
-        sb.append(">() {});\n\n")
-                // Call go...
-                .append("return super.go();");
+        call = createGuardCode(api, ep, call);
 
-        m.addCode(sb.toString());
+        if (ep.isCoalesceRequests()) {
+            call = CodeBlock.of("IN_FLIGHT.execute($T.key(restTemplate, uri, headers$L), () -> $L)",
+                    ResponseCache.class, createKeyHeadersCode(ep, List.of()), call);
+        }
+
+        if (ep.getCacheResponse() != null) {
+            call = CodeBlock.of("CACHE.get($T.key(restTemplate, uri, headers$L), () -> $L)",
+                    ResponseCache.class, createKeyHeadersCode(ep, List.of(ep.getCacheResponse().varyHeaders())), call);
+        }
+
+        m.addCode(createCallCode(api, call));
         return m.build();
     }
 
+    /**
+     * Wraps the given call expression into the concurrency limiter, the rate
+     * limiters, the circuit breaker and the retries, as far as they are
+     * enabled for the endpoint.
+     *
+     * @param api
+     * @param ep
+     * @param call
+     * @return
+     */
+    private CodeBlock createGuardCode(ApiScope api, EndpointScope ep, CodeBlock call) {
+        return createGuardCode(api, ep, call, false);
+    }
+
+    /**
+     * Like {@link #createGuardCode(ApiScope, EndpointScope, CodeBlock)}. If
+     * streaming, the call returns a stream and the slots of the concurrency
+     * limiter and the bulkhead are kept until it is closed. Streams are never
+     * hedged, as the slower stream would not be closed.
+     */
+    private CodeBlock createGuardCode(ApiScope api, EndpointScope ep, CodeBlock call, boolean streaming) {
+        var execute = streaming ? "executeStreaming" : "execute";
+
+        if (ep.getAdaptiveConcurrency() != null) {
+            call = CodeBlock.of("LIMITER.$L(() -> $L)", execute, call);
+        }
+
+        if (api.usesRateLimit()) {
+            call = CodeBlock.of("$T.rateLimiter(baseUrl).execute(() -> $L)",
+                    ClassName.get(api.getApiRequestClassPackageName(), api.getApiRequestsClassName()), call);
+        }
+
+        if (ep.getRateLimit() != null) {
+            // The narrower limit of the endpoint is checked first, so its rejections do not use up permits of the api.
+            call = CodeBlock.of("RATE_LIMITERS.get(baseUrl).execute(() -> $L)", call);
+        }
+
+        if (api.usesCircuitBreaker()) {
+            // Each attempt passes the breaker, so an open breaker also ends the retries.
+            call = CodeBlock.of("$T.circuitBreaker(baseUrl).$L(() -> $L)",
+                    ClassName.get(api.getApiRequestClassPackageName(), api.getApiRequestsClassName()), execute, call);
+        }
+
+        if (ep.getRetry() != null) {
+            call = CodeBlock.of("$L.execute(() -> $L, $T.RETRY_BUDGET)", streaming && ep.getRetry().hedge() ? "STREAMING_RETRY" : "RETRY",
+                    call, ClassName.get(api.getApiRequestClassPackageName(), api.getApiRequestsClassName()));
+        }
+
+        return call;
+    }
+
+    /**
+     * Creates the expression, that sends the request with the rest template.
+     *
+     * @param api
+     * @param ep
+     * @param headers Name of the variable holding the request headers.
+     * @return
+     */
+    private CodeBlock createExchangeCode(ApiScope api, EndpointScope ep, String headers) {
+        var body = findBody(ep);
+        var bodyCode = body == null ? "null" : localName(body);
+        var httpMethod = ep.getMethod() == null ? RequestMethod.GET : ep.getMethod();
+
+        if (api.usesCodec()) {
+            return CodeBlock.of("$T.CODEC.exchange(restTemplate, uri, $T.$L, $L, $L, $L, $L)",
+                    ClassName.get(api.getApiRequestClassPackageName(), api.getApiRequestsClassName()),
+                    HttpMethod.class, httpMethod.name(), headers,
+                    body == null ? "null" : "BODY_WRITER", bodyCode,
+                    ep.getReturnType().getKind() == TypeKind.VOID ? "null" : "RESPONSE_READER");
+        }
+
+        return CodeBlock.of("restTemplate.exchange(uri, $T.$L, new $T<>($L, $L), RESPONSE_TYPE)",
+                HttpMethod.class, httpMethod.name(), HttpEntity.class, bodyCode, headers);
+    }
+
+    /**
+     * Creates the reader and writer constants of a request class, that uses
+     * the codec of its api.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private List<FieldSpec> createCodecFields(ApiScope api, EndpointScope ep) {
+        var apiClass = ClassName.get(api.getApiRequestClassPackageName(), api.getApiRequestsClassName());
+        var fields = new ArrayList<FieldSpec>();
+        var body = findBody(ep);
+
+        // Streaming bodies are sent without the codec.
+        if (body != null && body.getStreamingBody() != null) {
+            return fields;
+        }
+
+        if (ep.getReturnType().getKind() != TypeKind.VOID) {
+            fields.add(fieldSpecBldr(OBJECT_READER, "RESPONSE_READER", PRIVATE, STATIC, FINAL)
+                    .initializer("$T.CODEC.reader($L)", apiClass, createJacksonTypeReference(typeName(ep.getReturnType()).box()))
+                    .build());
+        }
+
+        if (body != null) {
+            fields.add(fieldSpecBldr(OBJECT_WRITER, "BODY_WRITER", PRIVATE, STATIC, FINAL)
+                    .initializer("$T.CODEC.writer($L)", apiClass, createJacksonTypeReference(typeName(body.getType()).box()))
+                    .build());
+        }
+
+        return fields;
+    }
+
+    private TypeSpec createJacksonTypeReference(TypeName type) {
+        return TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(JACKSON_TYPE_REFERENCE, type))
+                .build();
+    }
+
+    /**
+     * Creates the header name arguments of a cache key.
+     *
+     * @param ep
+     * @param varyHeaders Names of the header params to include. All if empty.
+     * @return
+     */
+    private CodeBlock createKeyHeadersCode(EndpointScope ep, List<String> varyHeaders) {
+        var code = CodeBlock.builder();
+
+        ep.getParams().stream()
+                .filter(ps -> ps.getKind() == HEADER_PARAM)
+                .filter(ps -> varyHeaders.isEmpty() || varyHeaders.contains(ps.getName()))
+                .forEachOrdered(ps -> code.add(", $L", paramNameConstant(ps)));
+
+        return code.build();
+    }
+
+    /**
+     * Creates the response cache constant of an endpoint. It is shared by all
+     * instances of the request class.
+     *
+     * @param ep
+     * @return
+     */
+    private FieldSpec createResponseCacheField(EndpointScope ep) {
+        var cache = ep.getCacheResponse();
+        var type = paramsTypeName(ClassName.get(ResponseCache.class), paramsTypeName(ResponseEntity.class, responseTypeName(ep)));
+
+        return fieldSpecBldr(type, "CACHE", PRIVATE, STATIC, FINAL)
+                .initializer("new $T<>($LL, $T.$L, $L)", ResponseCache.class, cache.ttl(), TimeUnit.class, cache.timeUnit().name(), cache.maxEntries())
+                .build();
+    }
+
+    private FieldSpec createETagCacheField(EndpointScope ep) {
+        var type = paramsTypeName(ClassName.get(ETagCache.class), responseTypeName(ep));
+
+        return fieldSpecBldr(type, "ETAGS", PRIVATE, STATIC, FINAL)
+                .initializer("new $T<>($L)", ETagCache.class, ep.getConditionalRequest().maxEntries())
+                .build();
+    }
+
+    private MethodSpec createGetETagCacheMethod(EndpointScope ep) {
+        return methodSpec("getETagCache", PUBLIC, STATIC)
+                .addJavadoc("Returns the ETag cache shared by all instances of this class.\n")
+                .returns(paramsTypeName(ClassName.get(ETagCache.class), responseTypeName(ep)))
+                .addStatement("return ETAGS")
+                .build();
+    }
+
+    private FieldSpec createRetryPolicyField(EndpointScope ep) {
+        return createRetryPolicyField(ep, "RETRY", ep.getRetry().hedge());
+    }
+
+    private FieldSpec createRetryPolicyField(EndpointScope ep, String name, boolean hedge) {
+        var retry = ep.getRetry();
+
+        return fieldSpecBldr(RetryPolicy.class, name, PRIVATE, STATIC, FINAL)
+                .initializer("new $T($L, $LL, $LL, $L, $L, $LL)", RetryPolicy.class,
+                        retry.maxAttempts(), retry.initialBackoff(), retry.maxBackoff(), retry.multiplier(), hedge, retry.minHedgeDelay())
+                .build();
+    }
+
+    private FieldSpec createConcurrencyLimiterField(EndpointScope ep) {
+        var limit = ep.getAdaptiveConcurrency();
+
+        return fieldSpecBldr(ConcurrencyLimiter.class, "LIMITER", PRIVATE, STATIC, FINAL)
+                .initializer("new $T($L, $L, $L, $L, $L, $LL)", ConcurrencyLimiter.class,
+                        limit.initialLimit(), limit.minLimit(), limit.maxLimit(), limit.backoffRatio(), limit.latencyTolerance(), limit.maxWait())
+                .build();
+    }
+
+    private MethodSpec createGetConcurrencyLimiterMethod() {
+        return methodSpec("getConcurrencyLimiter", PUBLIC, STATIC)
+                .addJavadoc("Returns the concurrency limiter shared by all instances of this class, e.g. to read its current limit.\n")
+                .returns(ConcurrencyLimiter.class)
+                .addStatement("return LIMITER")
+                .build();
+    }
+
+    private CodeBlock createRateLimiterCode(RateLimit rateLimit) {
+        if (rateLimit.mode() == RateLimit.Mode.FAIL_FAST) {
+            return CodeBlock.of("$T.failFast($L, $L)", RateLimiter.class, rateLimit.permitsPerSecond(), rateLimit.burst());
+        }
+
+        return CodeBlock.of("$T.blocking($L, $L, $LL)", RateLimiter.class, rateLimit.permitsPerSecond(), rateLimit.burst(), rateLimit.maxWait());
+    }
+
+    private FieldSpec createCoalescerField(EndpointScope ep) {
+        var type = paramsTypeName(ClassName.get(RequestCoalescer.class), paramsTypeName(ResponseEntity.class, responseTypeName(ep)));
+
+        return fieldSpecBldr(type, "IN_FLIGHT", PRIVATE, STATIC, FINAL)
+                .initializer("new $T<>()", RequestCoalescer.class)
+                .build();
+    }
+
+    private MethodSpec createGetCoalescerMethod(EndpointScope ep) {
+        return methodSpec("getRequestCoalescer", PUBLIC, STATIC)
+                .addJavadoc("Returns the coalescer shared by all instances of this class, e.g. to read how many calls were shared.\n")
+                .returns(paramsTypeName(ClassName.get(RequestCoalescer.class), paramsTypeName(ResponseEntity.class, responseTypeName(ep))))
+                .addStatement("return IN_FLIGHT")
+                .build();
+    }
+
+    private MethodSpec createGetResponseCacheMethod(EndpointScope ep) {
+        return methodSpec("getResponseCache", PUBLIC, STATIC)
+                .addJavadoc("Returns the response cache shared by all instances of this class, e.g. to read its hit and miss counts.\n")
+                .returns(paramsTypeName(ClassName.get(ResponseCache.class), paramsTypeName(ResponseEntity.class, responseTypeName(ep))))
+                .addStatement("return CACHE")
+                .build();
+    }
+
+    /**
+     * Creates the statements, that execute the given call expression and
+     * return its result. If metrics are enabled, the call is timed and errors
+     * are counted.
+     *
+     * @param api
+     * @param call
+     * @return
+     */
+    private CodeBlock createCallCode(ApiScope api, CodeBlock call) {
+        if (!api.isMetrics()) {
+            return CodeBlock.of("return $L;\n", call);
+        }
+
+        return CodeBlock.builder()
+                .addStatement("var sample = $T.start($T.globalRegistry)", TIMER, METRICS)
+                .beginControlFlow("try")
+                .addStatement("return $L", call)
+                .nextControlFlow("catch ($T ex)", RuntimeException.class)
+                .addStatement("ERRORS.increment()")
+                .addStatement("throw ex")
+                .nextControlFlow("finally")
+                .addStatement("sample.stop(TIMER)")
+                .endControlFlow()
+                .build();
+    }
+
+    /**
+     * Like {@link #createCallCode(ApiScope, CodeBlock)}, but for a call
+     * returning a stream. The call is timed until the stream is closed.
+     *
+     * @param api
+     * @param call
+     * @return
+     */
+    private CodeBlock createStreamingCallCode(ApiScope api, CodeBlock call) {
+        if (!api.isMetrics()) {
+            return CodeBlock.of("return $L;\n", call);
+        }
+
+        return CodeBlock.builder()
+                .addStatement("var sample = $T.start($T.globalRegistry)", TIMER, METRICS)
+                .beginControlFlow("try")
+                .addStatement("return $L.onClose(() -> sample.stop(TIMER))", call)
+                .nextControlFlow("catch ($T ex)", RuntimeException.class)
+                .addStatement("ERRORS.increment()")
+                .addStatement("sample.stop(TIMER)")
+                .addStatement("throw ex")
+                .endControlFlow()
+                .build();
+    }
+
+    /**
+     * Creates the timer and error counter constants of an endpoint. They are
+     * registered once per class, so the go methods only record to them.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private List<FieldSpec> createMetricsFields(ApiScope api, EndpointScope ep) {
+        var httpMethod = ep.getMethod() == null ? RequestMethod.GET : ep.getMethod();
+        var tags = CodeBlock.of(".tag($S, $S)\n.tag($S, $S)\n.tag($S, $S)\n",
+                "api", api.getApiClassName(),
+                "endpoint", ep.getMethodName(),
+                "method", httpMethod.name());
+
+        var timer = fieldSpecBldr(TIMER, "TIMER", PRIVATE, STATIC, FINAL)
+                .initializer(CodeBlock.builder()
+                        .add("$T.builder($S)\n", TIMER, METRIC_NAME)
+                        .indent().indent()
+                        .add(tags)
+                        .add(".register($T.globalRegistry)", METRICS)
+                        .unindent().unindent()
+                        .build())
+                .build();
+
+        var errors = fieldSpecBldr(COUNTER, "ERRORS", PRIVATE, STATIC, FINAL)
+                .initializer(CodeBlock.builder()
+                        .add("$T.builder($S)\n", COUNTER, METRIC_NAME + ".errors")
+                        .indent().indent()
+                        .add(tags)
+                        .add(".register($T.globalRegistry)", METRICS)
+                        .unindent().unindent()
+                        .build())
+                .build();
+
+        return List.of(timer, errors);
+    }
+
+    /**
+     * Creates a go method, that executes the request on the given executor and
+     * returns a future of the response.
+     *
+     * @param ep
+     * @return
+     */
+    private MethodSpec createGoAsyncMethodWithExecutor(EndpointScope ep) {
+        return methodSpec("goAsync", PUBLIC)
+                .returns(paramsTypeName(CompletableFuture.class, paramsTypeName(ResponseEntity.class, responseTypeName(ep))))
+                .addParameter(paramSpec(Executor.class, "executor"))
+                .addStatement("return $T.supplyAsync(this::go, executor)", CompletableFuture.class)
+                .build();
+    }
+
+    /**
+     * Creates a go method, that executes the request on the default executor
+     * of {@link RequestExecutors}, which uses virtual threads if supported by
+     * the runtime.
+     *
+     * @param ep
+     * @return
+     */
+    private MethodSpec createGoAsyncMethod(EndpointScope ep) {
+        return methodSpec("goAsync", PUBLIC)
+                .returns(paramsTypeName(CompletableFuture.class, paramsTypeName(ResponseEntity.class, responseTypeName(ep))))
+                .addStatement("return goAsync($T.defaultExecutor())", RequestExecutors.class)
+                .build();
+    }
+
+    /**
+     * Returns the type name of the response body. Primitives are boxed and
+     * void becomes {@link Void}, so the result is usable as type argument.
+     *
+     * @param ep
+     * @return
+     */
+    private TypeName responseTypeName(EndpointScope ep) {
+        if (ep.getReturnType().getKind() == TypeKind.VOID) {
+            return ClassName.get(Void.class);
+        }
+
+        return typeName(ep.getReturnType()).box();
+    }
+
+    /**
+     * Creates a constant holding the {@link ParameterizedTypeReference} of the
+     * response type. This way the anonymous type reference is instantiated and
+     * its generic type resolved only once per class instead of on each call.
+     *
+     * @param ep
+     * @return
+     */
+    private FieldSpec createResponseTypeConstant(EndpointScope ep) {
+        var type = paramsTypeName(ParameterizedTypeReference.class, responseTypeName(ep));
+
+        return fieldSpecBldr(type, "RESPONSE_TYPE", PRIVATE, STATIC, FINAL)
+                .initializer("$L", TypeSpec.anonymousClassBuilder("").addSuperinterface(type).build())
+                .build();
+    }
+
+    /**
+     * Creates a constant holding the {@link ParameterizedTypeReference} of the
+     * element type of a collection response.
+     *
+     * @param ep
+     * @return
+     */
+    private FieldSpec createElementTypeConstant(EndpointScope ep) {
+        var type = paramsTypeName(ParameterizedTypeReference.class, typeName(ep.getReturnElementType()).box());
+
+        return fieldSpecBldr(type, "ELEMENT_TYPE", PRIVATE, STATIC, FINAL)
+                .initializer("$L", TypeSpec.anonymousClassBuilder("").addSuperinterface(type).build())
+                .build();
+    }
+
+    private MethodSpec createGetWebClientMethod() {
+        return methodSpec("getWebClient", PROTECTED)
+                .returns(WEB_CLIENT)
+                .addCode("if (this.webClient == null) {\n"
+                        + "\treturn DEFAULT_WEB_CLIENT;\n"
+                        + "}\n"
+                        + "return this.webClient;\n"
+                )
+                .build();
+    }
+
+    /**
+     * Creates the method, that prepares the request spec of the web client
+     * with uri, headers and body.
+     *
+     * @param api
+     * @param ep
+     * @return
+     */
+    private MethodSpec createWebClientRequestMethod(ApiScope api, EndpointScope ep) {
+        var m = methodSpec("createRequest", PRIVATE)
+                .returns(paramsTypeName(WEB_CLIENT_REQUEST_HEADERS_SPEC, WildcardTypeName.subtypeOf(Object.class)));
+
+        var httpMethod = ep.getMethod() == null ? RequestMethod.GET : ep.getMethod();
+
+        m.addStatement("var spec = getWebClient().method($T.$L).uri(resolveUri())", HttpMethod.class, httpMethod.name());
+        m.addCode(createHeaderCode(ep, "spec.header($L, $L)", false));
+
+        var body = findBody(ep);
+
+        if (body != null) {
+            m.beginControlFlow("if (this.$L != null)", body.getVariableName())
+                    .addCode(createWebClientBodyCode(body))
+                    .endControlFlow();
+        }
+
+        return m.addStatement("return spec").build();
+    }
+
+    /**
+     * Creates the statement, that sets the body of the web client request.
+     * Streaming bodies are written by the codecs of the web client chunk by
+     * chunk.
+     *
+     * @param body
+     * @return
+     */
+    private CodeBlock createWebClientBodyCode(ParameterScope body) {
+        var name = body.getVariableName();
+
+        if (body.getStreamingBody() == null) {
+            return CodeBlock.of("spec.bodyValue(this.$L);\n", name);
+        }
+
+        switch (body.getStreamingBody()) {
+            case INPUT_STREAM:
+                return CodeBlock.of("spec.body($T.fromResource(new $T(this.$L)));\n", BODY_INSERTERS, InputStreamResource.class, name);
+            case RESOURCE:
+                return CodeBlock.of("spec.body($T.fromResource(this.$L));\n", BODY_INSERTERS, name);
+            case ITERATOR:
+                return CodeBlock.of("spec.body($T.fromIterable(() -> this.$L), $T.class);\n", FLUX, name, Object.class);
+            default:
+                return CodeBlock.of("spec.body(this.$L, $T.class);\n", name, Object.class);
+        }
+    }
+
+    private MethodSpec createWebClientGoMethod(ApiScope api, EndpointScope ep) {
+        return methodSpec("go", PUBLIC)
+                .returns(paramsTypeName(MONO, paramsTypeName(ResponseEntity.class, responseTypeName(ep))))
+                .addCode("return $L;\n", createReactiveCallCode(api, MONO, CodeBlock.of("createRequest().retrieve().toEntity(RESPONSE_TYPE)")))
+                .build();
+    }
+
+    /**
+     * Wraps the given publisher expression into a deferred one, that is timed
+     * from subscription to termination, if metrics are enabled.
+     *
+     * @param api
+     * @param publisherType Either {@link #MONO} or {@link #FLUX}.
+     * @param publisher
+     * @return
+     */
+    private CodeBlock createReactiveCallCode(ApiScope api, ClassName publisherType, CodeBlock publisher) {
+        if (!api.isMetrics()) {
+            return publisher;
+        }
+
+        return CodeBlock.builder()
+                .add("$T.defer(() -> {\n", publisherType)
+                .indent()
+                .addStatement("var sample = $T.start($T.globalRegistry)", TIMER, METRICS)
+                .add("return $L\n", publisher)
+                .indent().indent()
+                .add(".doOnError(ex -> ERRORS.increment())\n")
+                .add(".doFinally(signal -> sample.stop(TIMER));\n")
+                .unindent().unindent()
+                .unindent()
+                .add("})")
+                .build();
+    }
+
+    private MethodSpec createWebClientGoMethodWithWebClient(EndpointScope ep) {
+        return methodSpec("go", PUBLIC)
+                .returns(paramsTypeName(MONO, paramsTypeName(ResponseEntity.class, responseTypeName(ep))))
+                .addParameter(paramSpec(WEB_CLIENT, "webClient"))
+                .addStatement("this.webClient = webClient")
+                .addStatement("return this.go()")
+                .build();
+    }
+
+    /**
+     * Creates a go method for collection responses, which emits the elements
+     * one by one, as they are decoded.
+     *
+     * @param ep
+     * @return
+     */
+    private MethodSpec createWebClientGoFluxMethod(ApiScope api, EndpointScope ep) {
+        return methodSpec("goFlux", PUBLIC)
+                .returns(paramsTypeName(FLUX, typeName(ep.getReturnElementType()).box()))
+                .addCode("return $L;\n", createReactiveCallCode(api, FLUX, CodeBlock.of("createRequest().retrieve().bodyToFlux(ELEMENT_TYPE)")))
+                .build();
+    }
+
+    /**
+     * Creates the immutable prototype of a request class. It only keeps the
+     * base url and the rest template and passes the params of its go methods
+     * straight to the static send method, so calls allocate no request object.
+     *
+     * @param requestClass
+     * @param ep
+     * @return
+     */
+    private TypeSpec createPrototypeClass(ClassName requestClass, EndpointScope ep) {
+        var prototypeClass = requestClass.nestedClass("Prototype");
+        var responseType = paramsTypeName(ResponseEntity.class, responseTypeName(ep));
+
+        var t = TypeSpec.classBuilder(prototypeClass)
+                .addModifiers(PUBLIC, STATIC, FINAL)
+                .addJavadoc("Immutable and thread-safe variant of $T, which takes the params with each call.\n", requestClass)
+                .addJavadoc("One instance can be shared by all threads.\n");
+
+        t.addField(fieldSpec(STRING, "baseUrl", PRIVATE, FINAL));
+        t.addField(fieldSpec(RestTemplate.class, "restTemplate", PRIVATE, FINAL));
+
+        t.addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(PUBLIC)
+                .addParameter(STRING, "baseUrl")
+                .addParameter(RestTemplate.class, "restTemplate")
+                .addStatement("this.baseUrl = baseUrl")
+                .addStatement("this.restTemplate = restTemplate")
+                .build());
+
+        // Take the params in the same order as the constructor with all params: required ones first.
+        var params = ep.getParams().stream()
+                .sorted(comparing(ps -> !ps.isRequired()))
+                .collect(toList());
+
+        var go = methodSpec("go", PUBLIC).returns(goReturnType(ep));
+        var goAsync = methodSpec("goAsync", PUBLIC).returns(paramsTypeName(ClassName.get(CompletableFuture.class), responseType));
+        var goAsyncWithExecutor = methodSpec("goAsync", PUBLIC).returns(paramsTypeName(ClassName.get(CompletableFuture.class), responseType));
+
+        for (var ps : params) {
+            go.addParameter(paramSpec(ps.getType(), localName(ps)));
+            goAsync.addParameter(paramSpec(ps.getType(), localName(ps)));
+            goAsyncWithExecutor.addParameter(paramSpec(ps.getType(), localName(ps)));
+        }
+
+        goAsyncWithExecutor.addParameter(Executor.class, "executor");
+
+        // The send method expects the params in their declaration order.
+        var sendArgs = CodeBlock.of("this.restTemplate, this.baseUrl$L", ep.getParams().stream()
+                .map(ps -> CodeBlock.of(", $L", localName(ps)))
+                .collect(CodeBlock.joining("")));
+        var args = params.stream()
+                .map(ps -> CodeBlock.of("$L, ", localName(ps)))
+                .collect(CodeBlock.joining(""));
+
+        if (ep.getReturnType().getKind() == TypeKind.VOID) {
+            go.addStatement("send($L)", sendArgs);
+        } else {
+            go.addStatement("return send($L)", sendArgs);
+        }
+
+        t.addMethod(go.build());
+        t.addMethod(goAsync.addStatement("return goAsync($L$T.defaultExecutor())", args, RequestExecutors.class).build());
+        t.addMethod(goAsyncWithExecutor.addStatement("return $T.supplyAsync(() -> send($L), executor)", CompletableFuture.class, sendArgs).build());
+
+        return t.build();
+    }
+
+    /**
+     * Creates the nested <code>Batch</code> type of a request class, which
+     * executes the same request for many parameter sets with bounded
+     * concurrency and returns the results in input order.
+     *
+     * @param requestClass
+     * @param ep
+     * @return
+     */
+    private TypeSpec createBatchClass(ClassName requestClass, EndpointScope ep) {
+        var batchClass = requestClass.nestedClass("Batch");
+        var resultType = paramsTypeName(ClassName.get(BatchResult.class), paramsTypeName(ResponseEntity.class, responseTypeName(ep)));
+
+        var t = TypeSpec.classBuilder(batchClass)
+                .addModifiers(PUBLIC, STATIC, FINAL)
+                .addJavadoc("Executes $T for many parameter sets with bounded concurrency.\n", requestClass);
+
+        t.addField(fieldSpec(STRING, "baseUrl", PRIVATE, FINAL));
+        t.addField(fieldSpecBldr(paramsTypeName(ClassName.get(List.class), requestClass), "requests", PRIVATE, FINAL)
+                .initializer("new $T<>()", ArrayList.class)
+                .build());
+        t.addField(fieldSpec(RestTemplate.class, "restTemplate", PRIVATE));
+        t.addField(fieldSpec(Executor.class, "executor", PRIVATE));
+        t.addField(fieldSpecBldr(TypeName.INT, "maxConcurrency", PRIVATE)
+                .initializer("$T.DEFAULT_MAX_CONCURRENCY", BatchExecutor.class)
+                .build());
+
+        t.addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(PUBLIC)
+                .addParameter(STRING, "baseUrl")
+                .addStatement("this.baseUrl = baseUrl")
+                .build());
+
+        // Add the params in the same order as the constructor with all params: required ones first.
+        var add = methodSpec("add", PUBLIC)
+                .addJavadoc("Adds a request with the given parameter set.\n")
+                .returns(batchClass);
+
+        var args = new ArrayList<CodeBlock>();
+        args.add(CodeBlock.of("this.baseUrl"));
+
+        ep.getParams().stream()
+                .sorted(comparing(ps -> !ps.isRequired()))
+                .forEachOrdered(ps -> {
+                    add.addParameter(paramSpec(ps.getType(), localName(ps)));
+                    args.add(CodeBlock.of("$L", localName(ps)));
+                });
+
+        t.addMethod(add
+                .addStatement("this.requests.add(new $T($L))", requestClass, CodeBlock.join(args, ", "))
+                .addStatement("return this")
+                .build());
+
+        t.addMethod(methodSpec("add", PUBLIC)
+                .addJavadoc("Adds a request, that was configured beforehand.\n")
+                .returns(batchClass)
+                .addParameter(paramSpec(requestClass, "request"))
+                .addStatement("this.requests.add(request)")
+                .addStatement("return this")
+                .build());
+
+        t.addMethod(methodSpec("restTemplate", PUBLIC)
+                .addJavadoc("Sets the rest template shared by all requests of this batch.\n")
+                .returns(batchClass)
+                .addParameter(paramSpec(RestTemplate.class, "restTemplate"))
+                .addStatement("this.restTemplate = restTemplate")
+                .addStatement("return this")
+                .build());
+
+        t.addMethod(methodSpec("executor", PUBLIC)
+                .returns(batchClass)
+                .addParameter(paramSpec(Executor.class, "executor"))
+                .addStatement("this.executor = executor")
+                .addStatement("return this")
+                .build());
+
+        t.addMethod(methodSpec("maxConcurrency", PUBLIC)
+                .addJavadoc("Sets the maximum number of requests in flight at the same time.\n")
+                .returns(batchClass)
+                .addParameter(paramSpec(TypeName.INT, "maxConcurrency"))
+                .addStatement("this.maxConcurrency = maxConcurrency")
+                .addStatement("return this")
+                .build());
+
+        t.addMethod(methodSpec("go", PUBLIC)
+                .addJavadoc("Executes all requests and returns their results in the order they were added.\n"
+                        + "A failing request does not affect the others.\n")
+                .returns(paramsTypeName(ClassName.get(List.class), resultType))
+                .addStatement("var template = this.restTemplate")
+                .addStatement("var exec = this.executor == null ? $T.defaultExecutor() : this.executor", RequestExecutors.class)
+                .addStatement("return $T.execute(this.requests, r -> template == null ? r.go() : r.go(template), this.maxConcurrency, exec)", BatchExecutor.class)
+                .build());
+
+        return t.build();
+    }
+
+    /**
+     * Creates the builder style method, that sets the client used by all calls
+     * of <code>go()</code> without an explicit client.
+     *
+     * @param returnType
+     * @param clientType
+     * @param name
+     * @return
+     */
+    private MethodSpec createClientMethod(ClassName returnType, ClassName clientType, String name) {
+        return methodSpec(name, PUBLIC)
+                .returns(returnType)
+                .addParameter(paramSpec(clientType, name))
+                .addStatement("this.$1L = $1L", name)
+                .addStatement("return this")
+                .build();
+    }
+
     private MethodSpec createGetRestTemplateOverride() {
         return MethodSpec.methodBuilder("getRestTemplate")
                 .addModifiers(PROTECTED)
@@ -254,20 +1584,225 @@ public class JavaPoetRequestClassBuilder {
                 .build();
     }
 
+    /**
+     * Creates the factory class of the api, that owns the http client shared
+     * by all of its request classes.
+     *
+     * @param api
+     * @return
+     */
+    private TypeSpec createApiClass(ApiScope api) {
+        var className = ClassName.get(api.getApiRequestClassPackageName(), api.getApiRequestsClassName());
+        var webClient = api.getBackend() == Backend.WEBCLIENT;
+        var clientType = webClient ? WEB_CLIENT : ClassName.get(RestTemplate.class);
+        var clientName = webClient ? "webClient" : "restTemplate";
+
+        var t = TypeSpec.classBuilder(className)
+                .addModifiers(PUBLIC, FINAL)
+                .addOriginatingElement(api.getTypeElement())
+                .addJavadoc("Creates the requests of {@link $T}, which all share the same http client.\n"
+                        + "Instances are meant to be created once and kept for the lifetime of the application.\n",
+                        ClassName.get(api.getTypeElement()));
+
+        t.addField(fieldSpec(STRING, "baseUrl", PRIVATE, FINAL));
+        t.addField(fieldSpec(clientType, clientName, PRIVATE, FINAL));
+
+        if (!webClient) {
+            t.addJavadoc("Close it, when it is not needed any more, to release the pooled connections.\n");
+            t.addSuperinterface(AutoCloseable.class);
+            t.addField(fieldSpecBldr(CloseableHttpClient.class, "httpClient", PRIVATE, FINAL)
+                    .addJavadoc("The pooled http client, if it was created by this factory. Otherwise null.\n")
+                    .build());
+        }
+
+        if (api.usesCircuitBreaker()) {
+            var breaker = api.getCircuitBreaker();
+
+            t.addField(fieldSpecBldr(paramsTypeName(ClassName.get(PerBaseUrl.class), ClassName.get(ApiCircuitBreaker.class)), "CIRCUIT_BREAKERS", PRIVATE, STATIC, FINAL)
+                    .addJavadoc("The circuit breakers of this api, one per base url.\n")
+                    .addJavadoc("Their settings can be overridden with the system properties <code>$L.*</code>.\n", "efs.circuitBreaker." + api.getApiClassName())
+                    .initializer(CodeBlock.builder()
+                            .add("new $T<>(baseUrl -> new $T($S + baseUrl, new $T()", PerBaseUrl.class, ApiCircuitBreaker.class, api.getApiClassName() + " at ", CircuitBreakerConfig.class)
+                            .add("\n$>$>.setFailureRateThreshold($L)", breaker.failureRateThreshold())
+                            .add("\n.setMinimumCalls($L)", breaker.minimumCalls())
+                            .add("\n.setSlidingWindow($LL)", breaker.slidingWindow())
+                            .add("\n.setOpenDuration($LL)", breaker.openDuration())
+                            .add("\n.setMaxConcurrentCalls($L)", breaker.maxConcurrentCalls())
+                            .add("\n.setMaxWait($LL)", breaker.maxWait())
+                            .add("\n.withSystemProperties($S)))$<$<", "efs.circuitBreaker." + api.getApiClassName())
+                            .build())
+                    .build());
+            t.addMethod(methodSpec("circuitBreaker", STATIC)
+                    .addJavadoc("Returns the circuit breaker for the given base url, which is shared by the request classes of this api.\n")
+                    .returns(ApiCircuitBreaker.class)
+                    .addParameter(STRING, "baseUrl")
+                    .addStatement("return CIRCUIT_BREAKERS.get(baseUrl)")
+                    .build());
+        }
+
+        if (api.usesRateLimit()) {
+            t.addField(fieldSpecBldr(paramsTypeName(ClassName.get(PerBaseUrl.class), ClassName.get(RateLimiter.class)), "RATE_LIMITERS", PRIVATE, STATIC, FINAL)
+                    .addJavadoc("The rate limiters of this api, one per base url.\n")
+                    .initializer("new $T<>(baseUrl -> $L)", PerBaseUrl.class, createRateLimiterCode(api.getRateLimit()))
+                    .build());
+            t.addMethod(methodSpec("rateLimiter", STATIC)
+                    .addJavadoc("Returns the rate limiter for the given base url, which is shared by the request classes of this api.\n")
+                    .returns(RateLimiter.class)
+                    .addParameter(STRING, "baseUrl")
+                    .addStatement("return RATE_LIMITERS.get(baseUrl)")
+                    .build());
+        }
+
+        if (api.usesRetries()) {
+            // Without settings on the api interface, the defaults of the annotation apply.
+            var budgetRatio = api.getRetry() == null ? retryDefault("budgetRatio") : api.getRetry().budgetRatio();
+            var budgetMinRetries = api.getRetry() == null ? retryDefault("budgetMinRetries") : api.getRetry().budgetMinRetries();
+
+            t.addField(fieldSpecBldr(RetryBudget.class, "RETRY_BUDGET", PUBLIC, STATIC, FINAL)
+                    .addJavadoc("The retry budget shared by the request classes of this api.\n")
+                    .initializer("new $T($L, $L)", RetryBudget.class, budgetRatio, budgetMinRetries)
+                    .build());
+        }
+
+        if (api.usesCodec()) {
+            t.addField(fieldSpecBldr(JacksonCodec.class, "CODEC", PUBLIC, STATIC, FINAL)
+                    .addJavadoc("The codec shared by the request classes of this api.\n")
+                    .initializer("$T.$L()", JacksonCodec.class, api.getCodec().name().toLowerCase(Locale.ROOT))
+                    .build());
+        }
+
+        if (webClient) {
+            t.addMethod(MethodSpec.constructorBuilder()
+                    .addModifiers(PUBLIC)
+                    .addParameter(STRING, "baseUrl")
+                    .addStatement("this(baseUrl, $T.create())", WEB_CLIENT)
+                    .build());
+        } else {
+            t.addMethod(MethodSpec.constructorBuilder()
+                    .addModifiers(PUBLIC)
+                    .addJavadoc("Uses a pooled http client with the default {@link $T} and the compression settings of the api.\n", HttpClientConfig.class)
+                    .addParameter(STRING, "baseUrl")
+                    .addStatement("this(baseUrl, new $T()\n.setContentCompression($L)\n.setCompressRequestsAbove($LL))",
+                            HttpClientConfig.class, api.isCompressResponses(), api.getCompressRequestsAbove())
+                    .build());
+            t.addMethod(MethodSpec.constructorBuilder()
+                    .addModifiers(PUBLIC)
+                    .addParameter(STRING, "baseUrl")
+                    .addParameter(HttpClientConfig.class, "config")
+                    .addStatement("this(baseUrl, config.createHttpClient())")
+                    .build());
+            t.addMethod(MethodSpec.constructorBuilder()
+                    .addModifiers(PRIVATE)
+                    .addParameter(STRING, "baseUrl")
+                    .addParameter(CloseableHttpClient.class, "httpClient")
+                    .addStatement("this.baseUrl = baseUrl")
+                    .addStatement("this.restTemplate = new $T(new $T(httpClient))", RestTemplate.class, PooledRequestFactory.class)
+                    .addStatement("this.httpClient = httpClient")
+                    .build());
+        }
+
+        var clientConstructor = MethodSpec.constructorBuilder()
+                .addModifiers(PUBLIC)
+                .addParameter(STRING, "baseUrl")
+                .addParameter(clientType, clientName)
+                .addStatement("this.baseUrl = baseUrl")
+                .addStatement("this.$1L = $1L", clientName);
+
+        if (!webClient) {
+            clientConstructor
+                    .addJavadoc("Uses the given rest template, which is not closed by {@link #close()}.\n")
+                    .addStatement("this.httpClient = null");
+        }
+
+        t.addMethod(clientConstructor.build());
+
+        t.addMethod(methodSpec("getBaseUrl", PUBLIC)
+                .returns(STRING)
+                .addStatement("return this.baseUrl")
+                .build());
+        t.addMethod(methodSpec(webClient ? "getWebClient" : "getRestTemplate", PUBLIC)
+                .returns(clientType)
+                .addStatement("return this.$L", clientName)
+                .build());
+
+        if (!webClient) {
+            t.addMethod(methodSpec("close", PUBLIC)
+                    .addAnnotation(Override.class)
+                    .addJavadoc("Closes the pooled http client together with its idle connection evictor, if it was created by this factory.\n")
+                    .addException(IOException.class)
+                    .beginControlFlow("if (this.httpClient != null)")
+                    .addStatement("this.httpClient.close()")
+                    .endControlFlow()
+                    .build());
+        }
+
+        for (var ep : api.getEndpoints()) {
+            var requestClass = ClassName.get(api.getApiRequestClassPackageName(), ep.getRequestClassName());
+            var m = methodSpec(ep.getMethodName(), PUBLIC).returns(requestClass);
+
+            var args = new ArrayList<CodeBlock>();
+            args.add(CodeBlock.of("this.baseUrl"));
+
+            ep.getParams().stream()
+                    .filter(ps -> ps.isRequired())
+                    .forEachOrdered(ps -> {
+                        m.addParameter(paramSpec(ps.getType(), ps.getVariableName()));
+                        args.add(CodeBlock.of("$L", ps.getVariableName()));
+                    });
+
+            t.addMethod(m.addStatement("return new $T($L).$L(this.$L)", requestClass, CodeBlock.join(args, ", "), clientName, clientName).build());
+
+            if (api.usesPrototypes()) {
+                var prototypeClass = requestClass.nestedClass("Prototype");
+                t.addMethod(methodSpec(ep.getMethodName() + "Prototype", PUBLIC)
+                        .addJavadoc("Returns an immutable prototype of the request, which can be kept and shared by all threads.\n")
+                        .returns(prototypeClass)
+                        .addStatement("return new $T(this.baseUrl, this.restTemplate)", prototypeClass)
+                        .build());
+            }
+
+            if (!webClient) {
+                var batchClass = requestClass.nestedClass("Batch");
+                t.addMethod(methodSpec(ep.getMethodName() + "Batch", PUBLIC)
+                        .returns(batchClass)
+                        .addStatement("return new $T(this.baseUrl).restTemplate(this.restTemplate)", batchClass)
+                        .build());
+            }
+        }
+
+        return t.build();
+    }
+
+    /**
+     * Returns the default value of the given element of {@link Retry}.
+     *
+     * @param element
+     * @return
+     */
+    private static Object retryDefault(String element) {
+        try {
+            return Retry.class.getMethod(element).getDefaultValue();
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("@Retry has no element " + element + ".", ex);
+        }
+    }
+
     private TypeSpec createRequestClass(ApiScope api, EndpointScope ep) {
         var className = ClassName.get(api.getApiRequestClassPackageName(), ep.getRequestClassName());
         var t = TypeSpec.classBuilder(className).addModifiers(PUBLIC, FINAL);
 
-        // Create parent type as AbstractRequest<T>, where T is the return type of the endpoint.
-        t.superclass(paramsTypeName(AbstractRequest.class, ep.getReturnType()));
-
-        // concatenate api and endpoint path to get full pathTemplate for this endpoint.
-        var pathTemplate = safeConcat(api.getPath(), ep.getPath());
+        // The api interface is the only origin of this class. This keeps the processor isolating for incremental builds.
+        t.addOriginatingElement(api.getTypeElement());
 
         // Add common fields...
-        t.addField(fieldSpecBldr(STRING, "pathTemplate", PRIVATE, FINAL).initializer("\"" + pathTemplate + "\"").build());
+        t.addField(createResponseTypeConstant(ep));
+        t.addFields(createParamNameConstants(ep));
+
+        if (api.isMetrics()) {
+            t.addFields(createMetricsFields(api, ep));
+        }
+
         t.addField(fieldSpec(STRING, "baseUrl", PRIVATE, FINAL));
-        t.addField(fieldSpec(RestTemplate.class, "restTemplate", PRIVATE));
 
         // Add a storage field for each param...
         ep.getParams().stream()
@@ -287,19 +1822,119 @@ public class JavaPoetRequestClassBuilder {
             }
         }
 
-        t.addMethod(createGetRestTemplateOverride());
-
         // Make builder style methods for each param.
         ep.getParams().stream()
                 //.filter(ps -> !ps.isRequired()) // Required values are set in constructor.
                 .map(ps -> createParameterMethod(className, ps))
                 .forEach(t::addMethod);
 
+        t.addMethod(createResolveUriMethod(api, ep));
+        t.addMethod(createStaticResolveUriMethod(api, ep));
+
+        if (api.getBackend() == Backend.WEBCLIENT) {
+            addWebClientMembers(t, api, ep);
+        } else {
+            addRestTemplateMembers(t, api, ep);
+        }
+
+        return t.build();
+    }
+
+    private void addRestTemplateMembers(TypeSpec.Builder t, ApiScope api, EndpointScope ep) {
+        // Create parent type as AbstractRequest<T>, where T is the return type of the endpoint.
+        t.superclass(paramsTypeName(AbstractRequest.class, ep.getReturnType()));
+
+        if (api.usesCodec()) {
+            t.addFields(createCodecFields(api, ep));
+        }
+
+        if (ep.getRetry() != null) {
+            t.addField(createRetryPolicyField(ep));
+        }
+
+        if (ep.getAdaptiveConcurrency() != null) {
+            t.addField(createConcurrencyLimiterField(ep));
+            t.addMethod(createGetConcurrencyLimiterMethod());
+        }
+
+        if (ep.getRateLimit() != null) {
+            t.addField(fieldSpecBldr(paramsTypeName(ClassName.get(PerBaseUrl.class), ClassName.get(RateLimiter.class)), "RATE_LIMITERS", PRIVATE, STATIC, FINAL)
+                    .addJavadoc("The rate limiters of this endpoint, one per base url. They apply in addition to the ones of the api.\n")
+                    .initializer("new $T<>(baseUrl -> $L)", PerBaseUrl.class, createRateLimiterCode(ep.getRateLimit()))
+                    .build());
+        }
+
+        if (ep.getCacheResponse() != null) {
+            t.addField(createResponseCacheField(ep));
+            t.addMethod(createGetResponseCacheMethod(ep));
+        }
+
+        if (ep.getConditionalRequest() != null) {
+            t.addField(createETagCacheField(ep));
+            t.addMethod(createGetETagCacheMethod(ep));
+        }
+
+        if (ep.isCoalesceRequests()) {
+            t.addField(createCoalescerField(ep));
+            t.addMethod(createGetCoalescerMethod(ep));
+        }
+
+        t.addField(fieldSpec(RestTemplate.class, "restTemplate", PRIVATE));
+        t.addMethod(createGetRestTemplateOverride());
+        t.addMethod(createClientMethod(ClassName.get(api.getApiRequestClassPackageName(), ep.getRequestClassName()), ClassName.get(RestTemplate.class), "restTemplate"));
+
         // Add essential go method override.
-        t.addMethod(createGoOverrideMethod(ep));
+        // Prefixed with $, so they do not clash with params or members of AbstractRequest.
+        t.addField(fieldSpecBldr(TypeName.BOOLEAN, "$customized", PRIVATE)
+                .addJavadoc("Whether anything was set through the methods of {@link $T}.\n", AbstractRequest.class)
+                .build());
+        t.addField(fieldSpec(TypeName.BOOLEAN, "$customUri", PRIVATE));
+        t.addField(fieldSpec(TypeName.BOOLEAN, "$customBody", PRIVATE));
+        t.addMethods(createAbstractRequestOverrides(ClassName.get(api.getApiRequestClassPackageName(), ep.getRequestClassName()), ep));
+        t.addMethod(createGoOverrideMethod(api, ep));
+        t.addMethod(createGoCustomizedMethod(api, ep));
+        t.addMethod(createSendMethod(api, ep));
         t.addMethod(createGoMethodWithRestTemplate(ep));
+        t.addMethod(createGoAsyncMethod(ep));
+        t.addMethod(createGoAsyncMethodWithExecutor(ep));
 
-        return t.build();
+        if (ep.getReturnElementType() != null) {
+            t.addField(createElementTypeConstant(ep));
+            t.addMethod(createGoStreamingMethod(api, ep));
+
+            if (ep.getRetry() != null && ep.getRetry().hedge()) {
+                t.addField(createRetryPolicyField(ep, "STREAMING_RETRY", false));
+            }
+        }
+
+        t.addType(createBatchClass(ClassName.get(api.getApiRequestClassPackageName(), ep.getRequestClassName()), ep));
+
+        if (api.usesPrototypes()) {
+            t.addType(createPrototypeClass(ClassName.get(api.getApiRequestClassPackageName(), ep.getRequestClassName()), ep));
+        }
+    }
+
+    private void addWebClientMembers(TypeSpec.Builder t, ApiScope api, EndpointScope ep) {
+        // WebClient.create() shares the connection resources of the underlying http client.
+        t.addField(fieldSpecBldr(WEB_CLIENT, "DEFAULT_WEB_CLIENT", PRIVATE, STATIC, FINAL)
+                .initializer("$T.create()", WEB_CLIENT)
+                .build());
+
+        if (ep.getReturnElementType() != null) {
+            t.addField(createElementTypeConstant(ep));
+        }
+
+        t.addField(fieldSpec(WEB_CLIENT, "webClient", PRIVATE));
+        t.addMethod(createGetWebClientMethod());
+        t.addMethod(createClientMethod(ClassName.get(api.getApiRequestClassPackageName(), ep.getRequestClassName()), WEB_CLIENT, "webClient"));
+
+        t.addMethod(createWebClientRequestMethod(api, ep));
+        t.addMethod(createWebClientGoMethod(api, ep));
+        t.addMethod(createWebClientGoMethodWithWebClient(ep));
+
+        if (ep.getReturnElementType() != null) {
+            t.addMethod(createWebClientGoFluxMethod(api, ep));
+        }
     }
 
 }
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.javapoet;
+
+import com.squareup.javapoet.JavaFile;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The rendered source code of a generated class. Rendering is done without
+ * touching the compiler's model, so it is safe to render several sources in
+ * parallel.
+ *
+ * @author ben
+ */
+@Data
+@AllArgsConstructor
+public class RenderedSource {
+
+    private String qualifiedName;
+    private String content;
+
+    /**
+     * The elements this source was generated from. Passed on to the filer, so
+     * build tools can process incrementally.
+     */
+    private List<Element> originatingElements;
+
+    public static RenderedSource render(JavaFile javaFile) {
+        var packageName = javaFile.packageName;
+        var simpleName = javaFile.typeSpec.name;
+        var qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        return new RenderedSource(qualifiedName, javaFile.toString(), javaFile.typeSpec.originatingElements);
+    }
+
+    /**
+     * Writes the source into the given directory, using the usual package
+     * directory layout.
+     *
+     * @param directory
+     * @throws IOException
+     */
+    public void writeTo(Path directory) throws IOException {
+        var file = directory.resolve(qualifiedName.replace('.', File.separatorChar) + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the source to the given filer.
+     *
+     * @param filer
+     * @return The location of the written file.
+     * @throws IOException
+     */
+    public URI writeTo(Filer filer) throws IOException {
+        var file = filer.createSourceFile(qualifiedName, originatingElements.toArray(new Element[0]));
+
+        try (var writer = file.openWriter()) {
+            writer.write(content);
+        }
+
+        return file.toUri();
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Circuit breaker and bulkhead shared by all request classes of an api, that
+ * call the same base url. While the breaker is closed, calls pass and their
+ * outcomes are counted in a sliding window. If the failure rate exceeds the
+ * threshold, the breaker opens and calls are rejected without being sent.
+ * After the open duration a single probe call is let through, which either
+ * closes the breaker again or keeps it open.
+ * <p>
+ * The bulkhead limits the number of concurrent calls of the api, so a slow
+ * upstream cannot occupy all threads of the application.
+ *
+ * @author ben
+ */
+public class ApiCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int BUCKETS = 10;
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final long maxWait;
+    private final SlidingWindowCounter window;
+    private final Semaphore bulkhead;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+    private volatile long openUntil;
+
+    public ApiCircuitBreaker(String name, CircuitBreakerConfig config) {
+        this(name, config, System::nanoTime);
+    }
+
+    /**
+     * @param name
+     * @param config
+     * @param nanoClock Clock like {@link System#nanoTime()}, which the open
+     * duration and the sliding window are measured with.
+     */
+    ApiCircuitBreaker(String name, CircuitBreakerConfig config, LongSupplier nanoClock) {
+        this.name = name;
+        this.failureRateThreshold = config.getFailureRateThreshold();
+        this.minimumCalls = Math.max(1, config.getMinimumCalls());
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(config.getOpenDuration());
+        this.maxWait = config.getMaxWait();
+        this.window = new SlidingWindowCounter(config.getSlidingWindow(), BUCKETS, nanoClock);
+        this.bulkhead = config.getMaxConcurrentCalls() > 0 ? new Semaphore(config.getMaxConcurrentCalls()) : null;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Executes the call, if the breaker and the bulkhead permit it.
+     *
+     * @param <T>
+     * @param call
+     * @return
+     * @throws CallRejectedException If the breaker is open or the bulkhead is
+     * full. Rejections of the call itself, e.g. by a rate limiter, are passed
+     * on without being counted.
+     */
+    public <T> T execute(Supplier<T> call) {
+        return execute(call, false);
+    }
+
+    /**
+     * Executes a call returning a stream, if the breaker and the bulkhead
+     * permit it. The outcome is counted when the call returns, but the place
+     * in the bulkhead is kept until the returned stream is closed.
+     *
+     * @param <T>
+     * @param call
+     * @return
+     * @throws CallRejectedException If the breaker is open or the bulkhead is
+     * full.
+     */
+    public <T> Stream<T> executeStreaming(Supplier<Stream<T>> call) {
+        return execute(call, true).onClose(this::leaveBulkhead);
+    }
+
+    private <T> T execute(Supplier<T> call, boolean keepBulkhead) {
+        var current = state.get();
+        boolean probe;
+
+        if (current == State.CLOSED.ordinal()) {
+            probe = false;
+        } else if (current == State.OPEN.ordinal()
+                && nanoClock.getAsLong() - openUntil >= 0
+                && state.compareAndSet(current, State.HALF_OPEN.ordinal())) {
+            // Only the caller, that switched the breaker to half open, sends the probe.
+            probe = true;
+        } else {
+            throw new CallRejectedException("The circuit breaker of " + name + " is open.");
+        }
+
+        if (!tryEnterBulkhead()) {
+            if (probe) {
+                // The probe was not sent, so the next caller may try again.
+                state.set(State.OPEN.ordinal());
+            }
+            throw new CallRejectedException("The bulkhead of " + name + " is full.");
+        }
+
+        var returned = false;
+
+        try {
+            var result = call.get();
+            returned = true;
+            onSuccess(probe);
+            return result;
+        } catch (CallRejectedException ex) {
+            // Rejected by a limiter inside the breaker, so the upstream was not called and tells nothing about its health.
+            if (probe) {
+                state.set(State.OPEN.ordinal());
+            }
+            throw ex;
+        } catch (RuntimeException | Error ex) {
+            if (isFailure(ex)) {
+                onFailure(probe);
+            } else {
+                onSuccess(probe);
+            }
+            throw ex;
+        } finally {
+            if (!returned || !keepBulkhead) {
+                leaveBulkhead();
+            }
+        }
+    }
+
+    public State getState() {
+        return State.values()[state.get()];
+    }
+
+    /**
+     * Returns the name of the api, this breaker belongs to.
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the given exception counts as failure of the upstream. By
+     * default these are connection errors and server errors. Client errors
+     * indicate a healthy upstream.
+     *
+     * @param ex
+     * @return
+     */
+    protected boolean isFailure(Throwable ex) {
+        return ex instanceof ResourceAccessException
+                || ex instanceof HttpServerErrorException
+                || ex instanceof Error;
+    }
+
+    private boolean tryEnterBulkhead() {
+        if (bulkhead == null) {
+            return true;
+        }
+
+        if (maxWait <= 0) {
+            return bulkhead.tryAcquire();
+        }
+
+        try {
+            return bulkhead.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void leaveBulkhead() {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    private void onSuccess(boolean probe) {
+        if (probe) {
+            window.reset();
+            state.set(State.CLOSED.ordinal());
+            return;
+        }
+
+        window.record(false);
+    }
+
+    private void onFailure(boolean probe) {
+        if (probe) {
+            open(State.HALF_OPEN);
+            return;
+        }
+
+        window.record(true);
+
+        if (state.get() != State.CLOSED.ordinal()) {
+            return;
+        }
+
+        var calls = window.getCalls();
+
+        if (calls >= minimumCalls && window.getFailures() * 100 >= failureRateThreshold * calls) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void open(State expected) {
+        openUntil = nanoClock.getAsLong() + openDurationNanos;
+        state.compareAndSet(expected.ordinal(), State.OPEN.ordinal());
+    }
+}
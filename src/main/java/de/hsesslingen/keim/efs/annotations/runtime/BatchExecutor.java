@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Executes a batch of requests with bounded concurrency. Used by the
+ * <code>Batch</code> types of generated request classes.
+ *
+ * @author ben
+ */
+public class BatchExecutor {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+
+    private BatchExecutor() {
+    }
+
+    /**
+     * Applies the call to each request on the given executor, with at most
+     * <code>maxConcurrency</code> calls in flight at any time. Blocks until
+     * all calls finished.
+     *
+     * @param <R> The request type.
+     * @param <T> The result type.
+     * @param requests
+     * @param call
+     * @param maxConcurrency
+     * @param executor
+     * @return The results in the order of the requests. A failed call does not
+     * affect the others and is reported in its own result.
+     */
+    public static <R, T> List<BatchResult<T>> execute(List<R> requests, Function<R, T> call, int maxConcurrency, Executor executor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1.");
+        }
+
+        var permits = new Semaphore(maxConcurrency);
+        var futures = new ArrayList<CompletableFuture<BatchResult<T>>>(requests.size());
+
+        for (var request : requests) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.add(CompletableFuture.completedFuture(BatchResult.failure(ex)));
+                continue;
+            }
+
+            try {
+                futures.add(CompletableFuture
+                        .supplyAsync(() -> call.apply(request), executor)
+                        .handle((value, error) -> {
+                            permits.release();
+                            return error == null ? BatchResult.success(value) : BatchResult.<T>failure(unwrap(error));
+                        }));
+            } catch (RuntimeException ex) {
+                // The executor rejected the task.
+                permits.release();
+                futures.add(CompletableFuture.completedFuture(BatchResult.failure(ex)));
+            }
+        }
+
+        var results = new ArrayList<BatchResult<T>>(futures.size());
+
+        for (var future : futures) {
+            results.add(future.join());
+        }
+
+        return results;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+/**
+ * The outcome of a single request of a batch. Either holds the value or the
+ * error, that occured while executing the request.
+ *
+ * @author ben
+ * @param <T>
+ */
+public class BatchResult<T> {
+
+    private final T value;
+    private final Throwable error;
+
+    private BatchResult(T value, Throwable error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> BatchResult<T> success(T value) {
+        return new BatchResult<>(value, null);
+    }
+
+    public static <T> BatchResult<T> failure(Throwable error) {
+        return new BatchResult<>(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns the value or rethrows the error. Checked errors are wrapped in
+     * a {@link RuntimeException}.
+     *
+     * @return
+     */
+    public T getOrThrow() {
+        if (error == null) {
+            return value;
+        }
+
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+
+        throw new RuntimeException(error);
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "BatchResult(value=" + value + ")" : "BatchResult(error=" + error + ")";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Concurrent map, that evicts its eldest entries, once it holds more than the
+ * maximum number of entries. Each value sits in its own slot, which is queued
+ * in insertion order. An eldest slot is only removed, if the key still maps
+ * to exactly that slot, so a value put concurrently is never evicted instead
+ * of the one it replaced. Used by the response caches of generated request
+ * classes.
+ *
+ * @author ben
+ * @param <V>
+ */
+class BoundedMap<V> {
+
+    private final int maxEntries;
+
+    private final Map<Object, Slot<V>> slots = new ConcurrentHashMap<>();
+    private final Queue<Slot<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    BoundedMap(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    V get(Object key) {
+        var slot = slots.get(key);
+        return slot != null ? slot.value : null;
+    }
+
+    /**
+     * Puts the value and evicts the eldest entries, while there are too many.
+     * A replaced value loses its place in the insertion order.
+     *
+     * @param key
+     * @param value
+     * @return The number of evicted entries.
+     */
+    int put(Object key, V value) {
+        var slot = new Slot<V>(key, value);
+        var previous = slots.put(key, slot);
+
+        // Queued after it is mapped, so an eviction polling it will find it.
+        insertionOrder.add(slot);
+
+        if (previous != null) {
+            // If a concurrent put of the same key queued its slot late, it stays until polled, but is never evicted.
+            insertionOrder.remove(previous);
+        }
+
+        var evicted = 0;
+
+        while (slots.size() > maxEntries) {
+            var eldest = insertionOrder.poll();
+
+            if (eldest == null) {
+                break;
+            }
+
+            if (slots.remove(eldest.key, eldest)) {
+                evicted++;
+            }
+        }
+
+        return evicted;
+    }
+
+    /**
+     * Removes the value of the key.
+     *
+     * @param key
+     * @return Whether there was a value.
+     */
+    boolean remove(Object key) {
+        var slot = slots.remove(key);
+
+        if (slot == null) {
+            return false;
+        }
+
+        insertionOrder.remove(slot);
+        return true;
+    }
+
+    void clear() {
+        slots.clear();
+        insertionOrder.clear();
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * Number of queued slots. Equals the size, apart from puts in progress.
+     */
+    int queued() {
+        return insertionOrder.size();
+    }
+
+    /**
+     * Compared by identity, so only the slot, that was queued, is removed.
+     */
+    private static class Slot<V> {
+
+        private final Object key;
+        private final V value;
+
+        Slot(Object key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
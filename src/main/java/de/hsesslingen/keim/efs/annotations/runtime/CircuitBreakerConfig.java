@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.Properties;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Settings of an {@link ApiCircuitBreaker}. The generated
+ * <code>XxxRequests</code> factories initialize them from the
+ * <code>@CircuitBreaker</code> annotation of the api and let system
+ * properties override them.
+ *
+ * @author ben
+ */
+@Data
+@Accessors(chain = true)
+public class CircuitBreakerConfig {
+
+    /**
+     * Percentage of failed calls in the sliding window, at which the breaker
+     * opens.
+     */
+    private int failureRateThreshold = 50;
+
+    /**
+     * Minimum number of calls in the sliding window, before the failure rate
+     * is evaluated.
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * Length of the sliding window in milliseconds.
+     */
+    private long slidingWindow = 10_000;
+
+    /**
+     * Time in milliseconds, for which the breaker stays open.
+     */
+    private long openDuration = 30_000;
+
+    /**
+     * Maximum number of concurrent calls. Non-positive values disable the
+     * bulkhead.
+     */
+    private int maxConcurrentCalls = -1;
+
+    /**
+     * Time in milliseconds, that a call waits for a free slot of the bulkhead.
+     */
+    private long maxWait = 0;
+
+    /**
+     * Overrides the settings with the system properties, that start with the
+     * given prefix, e.g. <code>efs.circuitBreaker.StationApi</code>.
+     *
+     * @param prefix
+     * @return
+     */
+    public CircuitBreakerConfig withSystemProperties(String prefix) {
+        return withProperties(System.getProperties(), prefix);
+    }
+
+    /**
+     * Overrides the settings with the properties, that start with the given
+     * prefix. Each property is named like the setting, e.g.
+     * <code>&lt;prefix&gt;.openDuration</code>.
+     *
+     * @param properties
+     * @param prefix
+     * @return
+     */
+    public CircuitBreakerConfig withProperties(Properties properties, String prefix) {
+        failureRateThreshold = (int) getLong(properties, prefix + ".failureRateThreshold", failureRateThreshold);
+        minimumCalls = (int) getLong(properties, prefix + ".minimumCalls", minimumCalls);
+        slidingWindow = getLong(properties, prefix + ".slidingWindow", slidingWindow);
+        openDuration = getLong(properties, prefix + ".openDuration", openDuration);
+        maxConcurrentCalls = (int) getLong(properties, prefix + ".maxConcurrentCalls", maxConcurrentCalls);
+        maxWait = getLong(properties, prefix + ".maxWait", maxWait);
+        return this;
+    }
+
+    private static long getLong(Properties properties, String key, long defaultValue) {
+        var value = properties.getProperty(key);
+
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Property " + key + " is no number: " + value, ex);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Limits the concurrent calls of an endpoint with an AIMD limit. Each call,
+ * that completes within the latency tolerance while the limit is in use,
+ * raises the limit by one. Each slow call, timeout or overload response
+ * multiplies it with the backoff ratio, at most once per round trip. Shared by
+ * all instances of a generated request class.
+ * <p>
+ * Calls waiting for a slot are parked in a queue and get the free slots in
+ * arrival order. New calls do not overtake waiting ones.
+ * <p>
+ * The reference latency is the lowest latency of the previous window of
+ * {@value #WINDOW} calls, so it follows the upstream, if its latency changes
+ * over the day.
+ *
+ * @author ben
+ */
+public class ConcurrencyLimiter {
+
+    private static final int WINDOW = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final long maxWaitNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong windowMin = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private volatile long referenceLatency = Long.MAX_VALUE;
+    private final AtomicLong lastDecrease;
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance, long maxWait) {
+        this(initialLimit, minLimit, maxLimit, backoffRatio, latencyTolerance, maxWait, System::nanoTime);
+    }
+
+    /**
+     * Like the public constructor, but measures the latencies with the given
+     * clock instead of {@link System#nanoTime()}. Waiting for a slot always
+     * uses the system clock.
+     */
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance, long maxWait, LongSupplier nanoClock) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+        this.limit = new AtomicInteger(Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit)));
+        this.nanoClock = nanoClock;
+        this.lastDecrease = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Executes the call, once a slot is free.
+     *
+     * @param <T>
+     * @param call
+     * @return
+     * @throws CallRejectedException If no slot became free within the maximum
+     * waiting time.
+     */
+    public <T> T execute(Supplier<T> call) {
+        return execute(call, false);
+    }
+
+    /**
+     * Executes a call returning a stream, once a slot is free. The slot is
+     * kept until the returned stream is closed. The latency is measured until
+     * the call returns, so the time taken to consume the stream does not
+     * count.
+     *
+     * @param <T>
+     * @param call
+     * @return
+     * @throws CallRejectedException If no slot became free within the maximum
+     * waiting time.
+     */
+    public <T> Stream<T> executeStreaming(Supplier<Stream<T>> call) {
+        return execute(call, true).onClose(this::release);
+    }
+
+    private <T> T execute(Supplier<T> call, boolean keepSlot) {
+        if (!tryAcquire()) {
+            throw new CallRejectedException("The concurrency limit of " + limit.get() + " calls is reached.");
+        }
+
+        var inUse = inFlight.get();
+        var start = nanoClock.getAsLong();
+        var overload = false;
+        var returned = false;
+
+        try {
+            var result = call.get();
+            returned = true;
+            return result;
+        } catch (RuntimeException ex) {
+            overload = isOverload(ex);
+            throw ex;
+        } finally {
+            onComplete(nanoClock.getAsLong() - start, inUse, overload);
+
+            if (!returned || !keepSlot) {
+                release();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Whether the given exception indicates an overloaded upstream. By default
+     * these are connection errors and timeouts, as well as the status codes
+     * 429 and 503.
+     *
+     * @param ex
+     * @return
+     */
+    protected boolean isOverload(RuntimeException ex) {
+        if (ex instanceof ResourceAccessException) {
+            return true;
+        }
+
+        if (ex instanceof HttpStatusCodeException) {
+            var status = ((HttpStatusCodeException) ex).getRawStatusCode();
+            return status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value();
+        }
+
+        return false;
+    }
+
+    private boolean tryAcquire() {
+        if (maxWaitNanos <= 0) {
+            return tryIncrementInFlight();
+        }
+
+        if (waiters.isEmpty() && tryIncrementInFlight()) {
+            return true;
+        }
+
+        var deadline = System.nanoTime() + maxWaitNanos;
+        var current = Thread.currentThread();
+        waiters.add(current);
+
+        try {
+            while (true) {
+                // Only the head of the queue may take a slot, which keeps the order of arrival.
+                if (waiters.peek() == current && tryIncrementInFlight()) {
+                    return true;
+                }
+
+                var remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0 || current.isInterrupted()) {
+                    return false;
+                }
+
+                // A slot freed between the check above and parking is not missed, as unpark() before park() is remembered.
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            waiters.remove(current);
+            // Hand on the turn, there may be a free slot for the next waiter.
+            signalNext();
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        signalNext();
+    }
+
+    /**
+     * Wakes up the first waiting call, if any, so it can try to get a slot.
+     */
+    private void signalNext() {
+        var next = waiters.peek();
+
+        if (next != null) {
+            LockSupport.unpark(next);
+        }
+    }
+
+    private boolean tryIncrementInFlight() {
+        while (true) {
+            var current = inFlight.get();
+
+            if (current >= limit.get()) {
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void onComplete(long latency, int inUse, boolean overload) {
+        var slow = updateReferenceLatency(latency);
+
+        if (overload || slow) {
+            // Like TCP, decrease at most once per round trip, as the calls completing meanwhile were sent under the old limit.
+            var now = nanoClock.getAsLong();
+            var last = lastDecrease.get();
+
+            if (now - last >= latency && lastDecrease.compareAndSet(last, now)) {
+                limit.updateAndGet(l -> Math.max(minLimit, (int) (l * backoffRatio)));
+            }
+        } else if (inUse * 2 >= limit.get()) {
+            // Only raise the limit, if it is actually used.
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    /**
+     * Records the latency and tells whether it exceeds the tolerance.
+     */
+    private boolean updateReferenceLatency(long latency) {
+        windowMin.accumulateAndGet(latency, Math::min);
+
+        if (windowCount.incrementAndGet() % WINDOW == 0) {
+            referenceLatency = windowMin.getAndSet(Long.MAX_VALUE);
+        }
+
+        var reference = referenceLatency;
+
+        return reference != Long.MAX_VALUE && latency > reference * latencyTolerance;
+    }
+}
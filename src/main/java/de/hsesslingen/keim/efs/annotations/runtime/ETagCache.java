@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Remembers the last ETag and response per key, to turn requests into
+ * conditional requests. Used by request classes of endpoints annotated with
+ * <code>@ConditionalRequest</code>.
+ *
+ * @author ben
+ * @param <T>
+ */
+public class ETagCache<T> {
+
+    private final BoundedMap<Entry<T>> entries;
+
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder modified = new LongAdder();
+
+    public ETagCache(int maxEntries) {
+        this.entries = new BoundedMap<>(maxEntries);
+    }
+
+    /**
+     * Executes the given call with an <code>If-None-Match</code> header, if an
+     * ETag is known for the key. On <code>304 Not Modified</code> the
+     * remembered response is returned without reading a body. Otherwise the
+     * new response is remembered, if it carries an ETag.
+     *
+     * @param key See {@link ResponseCache#key}.
+     * @param headers The request headers. A copy of them is passed to the
+     * call, so they are not modified and can be shared by concurrent calls.
+     * @param call
+     * @return
+     */
+    public ResponseEntity<T> execute(Object key, HttpHeaders headers, Function<HttpHeaders, ResponseEntity<T>> call) {
+        var entry = entries.get(key);
+
+        // Each attempt, e.g. a retried or hedged one, gets its own headers.
+        var callHeaders = new HttpHeaders();
+        callHeaders.addAll(headers);
+
+        if (entry != null) {
+            callHeaders.setIfNoneMatch(entry.etag);
+        }
+
+        var response = call.apply(callHeaders);
+
+        if (entry != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            notModified.increment();
+            return entry.response;
+        }
+
+        modified.increment();
+
+        var etag = response.getHeaders().getETag();
+
+        if (etag != null && response.getStatusCode().is2xxSuccessful()) {
+            entries.put(key, new Entry<>(etag, response));
+        }
+
+        return response;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of requests answered with
+     * <code>304 Not Modified</code>.
+     *
+     * @return
+     */
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    /**
+     * Returns the number of requests answered with a full response.
+     *
+     * @return
+     */
+    public long getModifiedCount() {
+        return modified.sum();
+    }
+
+    private static class Entry<T> {
+
+        private final String etag;
+        private final ResponseEntity<T> response;
+
+        public Entry(String etag, ResponseEntity<T> response) {
+            this.etag = etag;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Compresses request bodies of at least a given size with gzip while they are
+ * sent. Bodies of unknown size, i.e. streamed ones, are always compressed.
+ * Must run before the standard interceptors of the http client, which derive
+ * the content headers from the entity.
+ *
+ * @author ben
+ */
+public class GzipRequestInterceptor implements HttpRequestInterceptor {
+
+    private final long threshold;
+
+    /**
+     * @param threshold Minimum body size in bytes.
+     */
+    public GzipRequestInterceptor(long threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (!(request instanceof HttpEntityEnclosingRequest) || request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            return;
+        }
+
+        var enclosing = (HttpEntityEnclosingRequest) request;
+        var entity = enclosing.getEntity();
+
+        if (entity == null || entity.getContentEncoding() != null) {
+            return;
+        }
+
+        var length = entity.getContentLength();
+
+        if (length < 0 || length >= threshold) {
+            enclosing.setEntity(new GzipCompressingEntity(entity));
+        }
+    }
+}
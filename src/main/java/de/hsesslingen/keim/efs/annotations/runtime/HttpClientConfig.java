@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Settings of the pooled http client, that is shared by all request classes of
+ * an api through its generated <code>XxxRequests</code> factory. Connections
+ * are kept alive and reused, so connection setup is not part of each request.
+ * <p>
+ * The client is based on Apache HttpClient 4, which speaks HTTP/1.1 only.
+ *
+ * @author ben
+ */
+@Data
+@Accessors(chain = true)
+public class HttpClientConfig {
+
+    /**
+     * Maximum number of pooled connections over all routes.
+     */
+    private int maxConnectionsTotal = 200;
+
+    /**
+     * Maximum number of pooled connections per route, i.e. per target host.
+     */
+    private int maxConnectionsPerRoute = 50;
+
+    /**
+     * Timeout for establishing a connection in milliseconds.
+     */
+    private int connectTimeout = 2_000;
+
+    /**
+     * Timeout for waiting on a free connection of the pool in milliseconds.
+     */
+    private int connectionRequestTimeout = 2_000;
+
+    /**
+     * Timeout for waiting on data of an established connection in
+     * milliseconds.
+     */
+    private int readTimeout = 10_000;
+
+    /**
+     * Time in milliseconds, after which idle connections are closed and
+     * removed from the pool.
+     */
+    private long maxIdleTime = 30_000;
+
+    /**
+     * Time in milliseconds, after which pooled connections are revalidated
+     * before they are reused.
+     */
+    private int validateAfterInactivity = 2_000;
+
+    /**
+     * Whether responses are requested with <code>Accept-Encoding: gzip,
+     * deflate</code>. Compressed responses are decompressed while they are
+     * read.
+     */
+    private boolean contentCompression = true;
+
+    /**
+     * Minimum size in bytes of request bodies, that are sent gzip compressed.
+     * Bodies of unknown size are always compressed. Negative values disable
+     * the compression of request bodies.
+     */
+    private long compressRequestsAbove = -1;
+
+    /**
+     * Creates a new pooled http client. It runs a background thread evicting
+     * idle connections, so it must be closed, when it is not needed any more.
+     *
+     * @return
+     */
+    public CloseableHttpClient createHttpClient() {
+        var connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnectionsTotal);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+
+        var requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .setSocketTimeout(readTimeout)
+                .build();
+
+        var builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+
+        if (!contentCompression) {
+            builder.disableContentCompression();
+        }
+
+        if (compressRequestsAbove >= 0) {
+            builder.addInterceptorFirst(new GzipRequestInterceptor(compressRequestsAbove));
+        }
+
+        return builder.build();
+    }
+
+    public PooledRequestFactory createRequestFactory() {
+        return new PooledRequestFactory(createHttpClient());
+    }
+
+    public RestTemplate createRestTemplate() {
+        return new RestTemplate(createRequestFactory());
+    }
+}
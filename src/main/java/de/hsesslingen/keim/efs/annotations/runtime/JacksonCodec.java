@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * A Jackson based codec shared by the request classes of an api. The request
+ * classes keep an {@link ObjectReader} and {@link ObjectWriter} for their
+ * exact response and body types, so the serializers are looked up once per
+ * class instead of once per call through the message converters.
+ * <p>
+ * Besides json, the binary formats Smile and CBOR can be used. They require
+ * <code>jackson-dataformat-smile</code> or <code>jackson-dataformat-cbor</code>
+ * at runtime. Binary codecs still accept json responses, in case the server
+ * does not support the format. Jackson modules on the classpath, like
+ * Blackbird or Afterburner, are registered automatically.
+ *
+ * @author ben
+ */
+public class JacksonCodec {
+
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+    public static final MediaType APPLICATION_CBOR = MediaType.valueOf("application/cbor");
+
+    private final ObjectMapper mapper;
+    private final MediaType mediaType;
+    private final JsonFactory jsonFactory;
+    private final List<MediaType> accept;
+
+    public JacksonCodec(ObjectMapper mapper, MediaType mediaType) {
+        this.mapper = mapper;
+        this.mediaType = mediaType;
+        this.jsonFactory = new JsonFactory();
+
+        this.accept = MediaType.APPLICATION_JSON.equals(mediaType)
+                ? List.of(mediaType)
+                : List.of(mediaType, MediaType.valueOf("application/json;q=0.5"));
+    }
+
+    public static JacksonCodec json() {
+        return new JacksonCodec(new ObjectMapper().findAndRegisterModules(), MediaType.APPLICATION_JSON);
+    }
+
+    public static JacksonCodec smile() {
+        return binary("com.fasterxml.jackson.dataformat.smile.SmileFactory", "jackson-dataformat-smile", APPLICATION_SMILE);
+    }
+
+    public static JacksonCodec cbor() {
+        return binary("com.fasterxml.jackson.dataformat.cbor.CBORFactory", "jackson-dataformat-cbor", APPLICATION_CBOR);
+    }
+
+    private static JacksonCodec binary(String factoryClassName, String artifact, MediaType mediaType) {
+        try {
+            // Loaded reflectively, so the dataformat is only needed by apis, that use it.
+            var factory = (JsonFactory) Class.forName(factoryClassName).getConstructor().newInstance();
+            return new JacksonCodec(new ObjectMapper(factory).findAndRegisterModules(), mediaType);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(artifact + " is required for the " + mediaType + " codec.", ex);
+        }
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public ObjectReader reader(TypeReference<?> type) {
+        return mapper.readerFor(type);
+    }
+
+    public ObjectWriter writer(TypeReference<?> type) {
+        return mapper.writerFor(type);
+    }
+
+    /**
+     * Sends the request using the request factory and error handler of the
+     * given rest template, but writes and reads the bodies with the given
+     * writer and reader instead of its message converters.
+     *
+     * @param <T>
+     * @param restTemplate
+     * @param uri
+     * @param method
+     * @param headers
+     * @param writer May be null, if there is no body.
+     * @param body May be null.
+     * @param reader May be null, if the response body is ignored.
+     * @return
+     */
+    public <T> ResponseEntity<T> exchange(RestTemplate restTemplate, URI uri, HttpMethod method, HttpHeaders headers,
+            ObjectWriter writer, Object body, ObjectReader reader) {
+
+        return restTemplate.execute(uri, method, request -> {
+            request.getHeaders().addAll(headers);
+
+            if (reader != null) {
+                request.getHeaders().setAccept(accept);
+            }
+
+            if (writer != null && body != null) {
+                request.getHeaders().setContentType(mediaType);
+                writer.writeValue(request.getBody(), body);
+            }
+        }, response -> new ResponseEntity<>(readBody(response, reader), response.getHeaders(), response.getRawStatusCode()));
+    }
+
+    private <T> T readBody(ClientHttpResponse response, ObjectReader reader) throws IOException {
+        if (reader == null) {
+            return null;
+        }
+
+        var in = new PushbackInputStream(response.getBody(), 1);
+        int first = in.read();
+
+        if (first < 0) {
+            return null;
+        }
+
+        in.unread(first);
+
+        var contentType = response.getHeaders().getContentType();
+
+        // Binary codecs fall back to json, if the server answered with it.
+        if (contentType != null && !contentType.isCompatibleWith(mediaType) && contentType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            reader = reader.with(jsonFactory);
+        }
+
+        return reader.readValue(in);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends requests, whose json array responses are parsed incrementally instead
+ * of being materialized as a whole. Used by the <code>goStreaming()</code>
+ * methods of generated request classes.
+ *
+ * @author ben
+ */
+public class JsonStreams {
+
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    private JsonStreams() {
+    }
+
+    /**
+     * Sends the request and returns the elements of the json array in the
+     * response body as a lazy stream. Only the current element is held in
+     * memory. The stream must be closed, which also closes the connection.
+     * <p>
+     * The request is sent with the request factory, error handler and json
+     * mapper of the given rest template.
+     *
+     * @param <T>
+     * @param restTemplate
+     * @param uri
+     * @param method
+     * @param headers
+     * @param body May be null.
+     * @param elementType
+     * @return
+     */
+    public static <T> Stream<T> exchange(RestTemplate restTemplate, URI uri, HttpMethod method, HttpHeaders headers, Object body, ParameterizedTypeReference<T> elementType) {
+        var mapper = findObjectMapper(restTemplate);
+        ClientHttpResponse response = null;
+
+        try {
+            var request = restTemplate.getRequestFactory().createRequest(uri, method);
+            request.getHeaders().addAll(headers);
+            request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+
+            if (body != null) {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                mapper.writeValue(request.getBody(), body);
+            }
+
+            response = request.execute();
+
+            if (restTemplate.getErrorHandler().hasError(response)) {
+                restTemplate.getErrorHandler().handleError(uri, method, response);
+            }
+
+            var javaType = mapper.getTypeFactory().constructType(elementType.getType());
+            var iterator = mapper.readerFor(javaType).<T>readValues(response.getBody());
+            var spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+            var closeable = response;
+
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(() -> {
+                        try {
+                            iterator.close();
+                        } catch (IOException ex) {
+                            // The response is closed anyway.
+                        } finally {
+                            closeable.close();
+                        }
+                    });
+        } catch (IOException ex) {
+            if (response != null) {
+                response.close();
+            }
+
+            throw new ResourceAccessException("I/O error on " + method + " request for \"" + uri + "\": " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            if (response != null) {
+                response.close();
+            }
+
+            throw ex;
+        }
+    }
+
+    private static ObjectMapper findObjectMapper(RestTemplate restTemplate) {
+        for (var converter : restTemplate.getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                return ((MappingJackson2HttpMessageConverter) converter).getObjectMapper();
+            }
+        }
+
+        return DEFAULT_OBJECT_MAPPER;
+    }
+}
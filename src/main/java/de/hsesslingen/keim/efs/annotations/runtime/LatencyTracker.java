@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the latest latencies of an endpoint in a ring buffer and derives a
+ * percentile from them. The percentile is recomputed every few recordings
+ * only, so reading it is cheap.
+ *
+ * @author ben
+ */
+public class LatencyTracker {
+
+    private static final int SIZE = 1024;
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile long value = -1;
+
+    /**
+     * @param percentile The percentile between 0 and 1, e.g. 0.95.
+     */
+    public LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public void record(long nanos) {
+        // Masking keeps the index positive, once the counter overflows.
+        var n = count.getAndIncrement() & Integer.MAX_VALUE;
+        samples.set(n % SIZE, nanos);
+
+        if ((n + 1) % RECOMPUTE_INTERVAL == 0) {
+            recompute(Math.min(n + 1, SIZE));
+        }
+    }
+
+    private void recompute(int available) {
+        var copy = new long[available];
+
+        for (int i = 0; i < available; i++) {
+            copy[i] = samples.get(i);
+        }
+
+        Arrays.sort(copy);
+        value = copy[Math.min(available - 1, (int) (available * percentile))];
+    }
+
+    /**
+     * Returns the percentile in nanoseconds or -1, if not enough latencies
+     * were recorded yet.
+     *
+     * @return
+     */
+    public long getPercentile() {
+        return value;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Holds one instance per base url, e.g. one circuit breaker per provider of an
+ * api. This way the state gathered for one upstream does not affect calls to
+ * another one. Instances are created on first use and kept for the lifetime
+ * of the application.
+ *
+ * @author ben
+ * @param <T>
+ */
+public class PerBaseUrl<T> {
+
+    private final ConcurrentMap<String, T> instances = new ConcurrentHashMap<>();
+    private final Function<String, T> factory;
+
+    /**
+     * @param factory Creates the instance for a base url.
+     */
+    public PerBaseUrl(Function<String, T> factory) {
+        this.factory = factory;
+    }
+
+    public T get(String baseUrl) {
+        // Plain get first, as computeIfAbsent may lock even if the instance exists.
+        var instance = instances.get(baseUrl);
+        return instance != null ? instance : instances.computeIfAbsent(baseUrl, factory);
+    }
+}
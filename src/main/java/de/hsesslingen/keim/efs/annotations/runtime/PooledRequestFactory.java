@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.function.BiFunction;
+import org.apache.http.client.HttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Request factory of the pooled http client of the generated
+ * <code>XxxRequests</code> factories. Requests buffer their bodies like with
+ * the super class, so their length is known. In addition
+ * {@link #createStreamingRequest} creates requests, that stream their body,
+ * with the same http client and settings. Used by {@link StreamingUploads}.
+ *
+ * @author ben
+ */
+public class PooledRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final HttpComponentsClientHttpRequestFactory streaming;
+
+    public PooledRequestFactory(HttpClient httpClient) {
+        super(httpClient);
+        this.streaming = new HttpComponentsClientHttpRequestFactory(httpClient);
+        this.streaming.setBufferRequestBody(false);
+    }
+
+    /**
+     * Creates a request, that streams its body with chunked transfer encoding
+     * instead of buffering it.
+     *
+     * @param uri
+     * @param httpMethod
+     * @return
+     * @throws IOException
+     */
+    public ClientHttpRequest createStreamingRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        return streaming.createRequest(uri, httpMethod);
+    }
+
+    @Override
+    public void setHttpClient(HttpClient httpClient) {
+        super.setHttpClient(httpClient);
+
+        // Null while the super constructor runs.
+        if (streaming != null) {
+            streaming.setHttpClient(httpClient);
+        }
+    }
+
+    @Override
+    public void setConnectTimeout(int timeout) {
+        super.setConnectTimeout(timeout);
+        streaming.setConnectTimeout(timeout);
+    }
+
+    @Override
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        super.setConnectionRequestTimeout(connectionRequestTimeout);
+        streaming.setConnectionRequestTimeout(connectionRequestTimeout);
+    }
+
+    @Override
+    public void setReadTimeout(int timeout) {
+        super.setReadTimeout(timeout);
+        streaming.setReadTimeout(timeout);
+    }
+
+    @Override
+    public void setHttpContextFactory(BiFunction<HttpMethod, URI, HttpContext> httpContextFactory) {
+        super.setHttpContextFactory(httpContextFactory);
+        streaming.setHttpContextFactory(httpContextFactory);
+    }
+}
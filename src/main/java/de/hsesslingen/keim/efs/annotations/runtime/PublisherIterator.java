@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A blocking iterator over the elements of a reactive streams publisher. It
+ * requests only as many elements as it can buffer, so a fast publisher cannot
+ * fill up the memory. Used to upload publisher bodies with
+ * {@link StreamingUploads}.
+ * <p>
+ * The subscription is cancelled, if the iterator is closed or interrupted, or
+ * if the publisher fails. Close it, if it is abandoned before it is drained.
+ *
+ * @author ben
+ * @param <T>
+ */
+public class PublisherIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private static final int PREFETCH = 32;
+    private static final Object COMPLETE = new Object();
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(PREFETCH + 1);
+    // Written on the publisher thread and read on the consuming thread.
+    private volatile Subscription subscription;
+    private volatile boolean cancelled;
+    private Object next;
+    private int consumed;
+
+    public PublisherIterator(Publisher<? extends T> publisher) {
+        publisher.subscribe(new Subscriber<T>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+
+                // The iterator may have been closed before the publisher subscribed.
+                if (cancelled) {
+                    s.cancel();
+                } else {
+                    s.request(PREFETCH);
+                }
+            }
+
+            @Override
+            public void onNext(T item) {
+                queue.add(item);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                queue.add(new Failure(t));
+            }
+
+            @Override
+            public void onComplete() {
+                queue.add(COMPLETE);
+            }
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for the publisher.", ex);
+            }
+        }
+
+        if (next instanceof Failure) {
+            close();
+            var cause = ((Failure) next).cause;
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+
+        return next != COMPLETE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        var item = (T) next;
+        next = null;
+
+        // Request the next batch, once half of the prefetched elements are consumed.
+        if (++consumed == PREFETCH / 2) {
+            consumed = 0;
+            subscription.request(PREFETCH / 2);
+        }
+
+        return item;
+    }
+
+    /**
+     * Cancels the subscription, so the publisher stops emitting. Does nothing
+     * if the publisher already completed or failed.
+     */
+    @Override
+    public void close() {
+        cancelled = true;
+        var s = subscription;
+
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    private static class Failure {
+
+        private final Throwable cause;
+
+        public Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
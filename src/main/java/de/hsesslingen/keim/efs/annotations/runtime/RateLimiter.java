@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Token bucket rate limiter after the generic cell rate algorithm. The whole
+ * state is the theoretical arrival time of the next call, kept in a single
+ * atomic long, so threads share the limiter without locks. A call reserves
+ * its slot with one compare-and-set and, if it has to wait, sleeps until its
+ * slot has come without holding anything.
+ *
+ * @author ben
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final boolean block;
+    private final long maxWaitNanos;
+    private final LongSupplier nanoClock;
+
+    /**
+     * Theoretical arrival time, i.e. the time at which the bucket would be
+     * empty again.
+     */
+    private final AtomicLong tat;
+
+    private RateLimiter(double permitsPerSecond, int burst, boolean block, long maxWait, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("The rate must be positive.");
+        }
+
+        this.intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        this.block = block;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+        this.nanoClock = nanoClock;
+        this.tat = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Creates a limiter, that lets calls above the rate wait for their turn.
+     *
+     * @param permitsPerSecond
+     * @param burst
+     * @param maxWait Time in milliseconds, after which waiting calls are
+     * rejected instead.
+     * @return
+     */
+    public static RateLimiter blocking(double permitsPerSecond, int burst, long maxWait) {
+        return new RateLimiter(permitsPerSecond, burst, true, maxWait, System::nanoTime);
+    }
+
+    /**
+     * Like {@link #blocking(double, int, long)}, but takes the time from the
+     * given clock instead of {@link System#nanoTime()}.
+     */
+    static RateLimiter blocking(double permitsPerSecond, int burst, long maxWait, LongSupplier nanoClock) {
+        return new RateLimiter(permitsPerSecond, burst, true, maxWait, nanoClock);
+    }
+
+    /**
+     * Creates a limiter, that rejects calls above the rate immediately.
+     *
+     * @param permitsPerSecond
+     * @param burst
+     * @return
+     */
+    public static RateLimiter failFast(double permitsPerSecond, int burst) {
+        return new RateLimiter(permitsPerSecond, burst, false, 0, System::nanoTime);
+    }
+
+    /**
+     * Like {@link #failFast(double, int)}, but takes the time from the given
+     * clock instead of {@link System#nanoTime()}.
+     */
+    static RateLimiter failFast(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        return new RateLimiter(permitsPerSecond, burst, false, 0, nanoClock);
+    }
+
+    /**
+     * Executes the call, once the rate permits it.
+     *
+     * @param <T>
+     * @param call
+     * @return
+     * @throws CallRejectedException If the call would exceed the rate.
+     */
+    public <T> T execute(Supplier<T> call) {
+        acquire();
+        return call.get();
+    }
+
+    /**
+     * Takes a permit, waiting for it in the blocking mode.
+     *
+     * @throws CallRejectedException If no permit is available in time.
+     */
+    public void acquire() {
+        var wait = reserve();
+
+        if (wait < 0) {
+            throw new CallRejectedException("The rate limit is exceeded.");
+        }
+
+        if (wait > 0) {
+            var deadline = System.nanoTime() + wait;
+            long remaining;
+
+            // The slot is reserved, so waking up early is no problem, but the call must not be sent before it.
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CallRejectedException("Interrupted while waiting for the rate limit.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Tries to take a permit without waiting.
+     *
+     * @return
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * Reserves the next slot.
+     *
+     * @return The time in nanoseconds to wait for the slot, or -1 if it could
+     * not be reserved.
+     */
+    private long reserve() {
+        return reserve(block ? maxWaitNanos : 0);
+    }
+
+    private long reserve(long maxWait) {
+        while (true) {
+            var now = nanoClock.getAsLong();
+            var current = tat.get();
+            var arrival = current - now > 0 ? current : now;
+            var wait = arrival - now - toleranceNanos;
+
+            if (wait > maxWait) {
+                return -1;
+            }
+
+            if (tat.compareAndSet(current, arrival + intervalNanos)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent calls with the same key share a single execution. The first
+ * caller executes, all others wait for its result. Used by request classes of
+ * endpoints annotated with <code>@CoalesceRequests</code>.
+ * <p>
+ * The in-flight calls are kept in a {@link ConcurrentHashMap}, so callers
+ * with different keys do not contend with each other.
+ *
+ * @author ben
+ * @param <T>
+ */
+public class RequestCoalescer<T> {
+
+    private final ConcurrentMap<Object, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Executes the call, unless a call with the same key is in flight. Then
+     * its result is awaited and returned instead.
+     *
+     * @param key See {@link ResponseCache#key}.
+     * @param call
+     * @return
+     */
+    public T execute(Object key, Supplier<T> call) {
+        var own = new CompletableFuture<T>();
+        var existing = inFlight.putIfAbsent(key, own);
+
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+
+        executed.increment();
+
+        try {
+            var result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            // Rethrow the original exception of the executing caller.
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the number of calls, that were actually executed.
+     *
+     * @return
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Returns the number of calls, that shared the execution of another one.
+     *
+     * @return
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import static org.slf4j.LoggerFactory.getLogger;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Provides the default executor for the asynchronous go methods of generated
+ * request classes.
+ *
+ * @author ben
+ */
+public class RequestExecutors {
+
+    private static final Logger logger = getLogger(RequestExecutors.class);
+
+    private static volatile TaskDecorator taskDecorator;
+
+    private RequestExecutors() {
+    }
+
+    /**
+     * Returns the shared default executor. On runtimes supporting virtual
+     * threads, each task runs on a new virtual thread. Otherwise a cached pool
+     * of daemon threads is used.
+     *
+     * @return
+     */
+    public static ExecutorService defaultExecutor() {
+        return Holder.DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Sets a decorator, that is applied to the tasks of
+     * {@link #contextExecutor} on the submitting thread, e.g. to propagate a
+     * security context. The MDC of slf4j is always propagated.
+     *
+     * @param decorator The decorator or null to remove it.
+     */
+    public static void setTaskDecorator(TaskDecorator decorator) {
+        taskDecorator = decorator;
+    }
+
+    /**
+     * Returns an executor, which runs the tasks on the given executor with the
+     * MDC of the submitting thread and decorated by the decorator set with
+     * {@link #setTaskDecorator}. Used for the hedged calls of retries, so
+     * they see the same thread locals as the caller.
+     *
+     * @param executor
+     * @return
+     */
+    public static Executor contextExecutor(Executor executor) {
+        return task -> executor.execute(propagateContext(task));
+    }
+
+    private static Runnable propagateContext(Runnable task) {
+        var decorator = taskDecorator;
+        var decorated = decorator == null ? task : decorator.decorate(task);
+        var context = MDC.getCopyOfContextMap();
+
+        return () -> {
+            var previous = MDC.getCopyOfContextMap();
+            setMdc(context);
+
+            try {
+                decorated.run();
+            } finally {
+                setMdc(previous);
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            // Looked up reflectively, as long as the sources target a runtime without virtual threads.
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            logger.debug("Virtual threads not available. Falling back to cached thread pool.");
+            return Executors.newCachedThreadPool(new DaemonThreadFactory());
+        }
+    }
+
+    /**
+     * Lazy holder, so the executor is only created when actually used.
+     */
+    private static class Holder {
+
+        private static final ExecutorService DEFAULT_EXECUTOR = createDefaultExecutor();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            var thread = new Thread(r, "efs-request-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
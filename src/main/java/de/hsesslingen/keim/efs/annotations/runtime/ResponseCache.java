@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A size-bounded in-process cache of responses with a fixed time to live.
+ * Used by request classes of endpoints annotated with
+ * <code>@CacheResponse</code>.
+ * <p>
+ * Entries are evicted in insertion order if the maximum size is exceeded. A
+ * reloaded entry counts as inserted anew. Concurrent misses on the same key
+ * may load the value more than once.
+ *
+ * @author ben
+ * @param <T>
+ */
+public class ResponseCache<T> {
+
+    private static final String[] CREDENTIAL_HEADERS = {
+        HttpHeaders.AUTHORIZATION, HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.COOKIE
+    };
+
+    private final long ttlNanos;
+    private final BoundedMap<Entry<T>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(long ttl, TimeUnit timeUnit, int maxEntries) {
+        this.ttlNanos = timeUnit.toNanos(ttl);
+        this.entries = new BoundedMap<>(maxEntries);
+    }
+
+    /**
+     * Builds the cache key from the client, the uri and the values of the
+     * given headers. The credential headers <code>Authorization</code>,
+     * <code>Proxy-Authorization</code> and <code>Cookie</code> are always
+     * included, and clients are compared by identity. So a response is never
+     * shared between callers with different credentials or differently
+     * configured clients.
+     *
+     * @param client The rest template sending the request.
+     * @param uri
+     * @param headers
+     * @param headerNames
+     * @return
+     */
+    public static Key key(Object client, URI uri, HttpHeaders headers, String... headerNames) {
+        var sb = new StringBuilder(uri.toString());
+
+        for (var name : headerNames) {
+            sb.append('\n').append(name).append(':').append(headers.get(name));
+        }
+
+        for (var name : CREDENTIAL_HEADERS) {
+            var values = headers.get(name);
+
+            if (values != null && !containsIgnoreCase(headerNames, name)) {
+                sb.append('\n').append(name).append(':').append(values);
+            }
+        }
+
+        return new Key(client, sb.toString());
+    }
+
+    private static boolean containsIgnoreCase(String[] names, String name) {
+        for (var candidate : names) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the cached value for the given key or loads, caches and returns
+     * it, if there is none or if it is expired. Exceptions of the loader are
+     * not cached.
+     *
+     * @param key
+     * @param loader
+     * @return
+     */
+    public T get(Object key, Supplier<T> loader) {
+        var now = System.nanoTime();
+        var entry = entries.get(key);
+
+        if (entry != null && now - entry.created < ttlNanos) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+
+        var value = loader.get();
+        put(key, new Entry<>(value, System.nanoTime()));
+        return value;
+    }
+
+    private void put(Object key, Entry<T> entry) {
+        var evicted = entries.put(key, entry);
+
+        if (evicted > 0) {
+            evictions.add(evicted);
+        }
+    }
+
+    public void invalidate(Object key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Key of a cached response. Equal, if the clients are the same instance
+     * and the uri and header values are equal.
+     */
+    public static final class Key {
+
+        private final Object client;
+        private final String value;
+
+        private Key(Object client, String value) {
+            this.client = client;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            var other = (Key) obj;
+            return client == other.client && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(client) + value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    private static class Entry<T> {
+
+        private final T value;
+        private final long created;
+
+        public Entry(T value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits retries to a ratio of the requests. Each request deposits the ratio
+ * into the budget, each retry withdraws one. The balance is capped, so an
+ * outage can only use up the retries saved before, but no more. Shared by all
+ * request classes of an api.
+ *
+ * @author ben
+ */
+public class RetryBudget {
+
+    /**
+     * Fixed point scale of the balance, so fractional deposits can be kept in
+     * a single atomic long.
+     */
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    /**
+     * @param ratio Retries per request.
+     * @param minRetries Retries, that can be spent at any time, if not used
+     * up. Also the initial balance.
+     */
+    public RetryBudget(double ratio, int minRetries) {
+        this.deposit = Math.round(ratio * SCALE);
+        this.maxBalance = Math.max(1, minRetries) * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * Records a request, that is not a retry.
+     */
+    public void deposit() {
+        if (balance.get() < maxBalance) {
+            balance.accumulateAndGet(deposit, (current, d) -> Math.min(maxBalance, current + d));
+        }
+    }
+
+    /**
+     * Withdraws a retry, if the budget allows it.
+     *
+     * @return Whether the retry may be sent.
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            var current = balance.get();
+
+            if (current < SCALE) {
+                return false;
+            }
+
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of retries currently available.
+     *
+     * @return
+     */
+    public double getAvailableRetries() {
+        return (double) balance.get() / SCALE;
+    }
+}
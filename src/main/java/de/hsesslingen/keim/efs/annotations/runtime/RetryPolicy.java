@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Retries failed calls with exponential backoff and full jitter, and
+ * optionally hedges slow calls. Used by request classes of idempotent
+ * endpoints annotated with <code>@Retry</code>. Each request class keeps one
+ * instance, which tracks the latencies of its endpoint.
+ * <p>
+ * Retried are I/O errors and the statuses 429, 502, 503 and 504.
+ *
+ * @author ben
+ */
+public class RetryPolicy {
+
+    private static final double HEDGE_PERCENTILE = 0.95;
+
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final double multiplier;
+    private final boolean hedge;
+    private final long minHedgeDelay;
+    private final LongSupplier nanoClock;
+    private final LatencyTracker latencies = new LatencyTracker(HEDGE_PERCENTILE);
+
+    /**
+     * @param maxAttempts Maximum number of attempts including the first one.
+     * @param initialBackoff Upper bound of the first backoff in milliseconds.
+     * @param maxBackoff Upper bound of any backoff in milliseconds.
+     * @param multiplier Growth of the backoff bound per attempt.
+     * @param hedge Whether slow calls are hedged.
+     * @param minHedgeDelay Minimum delay before hedging in milliseconds.
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, double multiplier, boolean hedge, long minHedgeDelay) {
+        this(maxAttempts, initialBackoff, maxBackoff, multiplier, hedge, minHedgeDelay, System::nanoTime);
+    }
+
+    /**
+     * Like the public constructor, but measures the latencies with the given
+     * clock instead of {@link System#nanoTime()}.
+     */
+    RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, double multiplier, boolean hedge, long minHedgeDelay, LongSupplier nanoClock) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.multiplier = multiplier;
+        this.hedge = hedge;
+        this.minHedgeDelay = minHedgeDelay;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Executes the call and retries it, as long as it fails with a retryable
+     * exception, attempts are left and the budget allows it.
+     *
+     * @param <T>
+     * @param call
+     * @param budget
+     * @return
+     */
+    public <T> T execute(Supplier<T> call, RetryBudget budget) {
+        budget.deposit();
+        var backoffBound = (double) initialBackoff;
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                return hedge ? executeHedged(call, budget) : executeTimed(call);
+            } catch (RuntimeException ex) {
+                if (attempt >= maxAttempts || !isRetryable(ex) || !budget.tryWithdraw()) {
+                    throw ex;
+                }
+            }
+
+            sleep(ThreadLocalRandom.current().nextLong((long) Math.min(maxBackoff, backoffBound) + 1));
+            backoffBound *= multiplier;
+        }
+    }
+
+    private <T> T executeTimed(Supplier<T> call) {
+        var start = nanoClock.getAsLong();
+        var result = call.get();
+        latencies.record(nanoClock.getAsLong() - start);
+        return result;
+    }
+
+    /**
+     * Executes the call and sends a second one, if the first takes longer
+     * than the 95th percentile of the endpoint. Returns the first successful
+     * result. The slower call is not cancelled, but left to complete in the
+     * background, so its connection can be reused. Both calls run with the
+     * context of the caller, see {@link RequestExecutors#contextExecutor}.
+     */
+    private <T> T executeHedged(Supplier<T> call, RetryBudget budget) {
+        var completion = new ExecutorCompletionService<T>(RequestExecutors.contextExecutor(RequestExecutors.defaultExecutor()));
+        completion.submit(() -> executeTimed(call));
+
+        var percentile = latencies.getPercentile();
+        var delay = Math.max(TimeUnit.MILLISECONDS.toNanos(minHedgeDelay), percentile);
+
+        try {
+            var first = completion.poll(delay, TimeUnit.NANOSECONDS);
+
+            if (first != null) {
+                return getResult(first);
+            }
+
+            if (!budget.tryWithdraw()) {
+                return getResult(completion.take());
+            }
+
+            completion.submit(() -> executeTimed(call));
+
+            // The first successful result wins. If both fail, the second failure is thrown.
+            try {
+                return getResult(completion.take());
+            } catch (RuntimeException ex) {
+                return getResult(completion.take());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a hedged request.", ex);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+
+            throw new CompletionException(ex.getCause());
+        }
+    }
+
+    /**
+     * Checks whether the call may succeed, if it is sent again.
+     *
+     * @param ex
+     * @return
+     */
+    protected boolean isRetryable(RuntimeException ex) {
+        if (ex instanceof ResourceAccessException) {
+            return true;
+        }
+
+        if (ex instanceof HttpStatusCodeException) {
+            var status = ((HttpStatusCodeException) ex).getRawStatusCode();
+
+            return status == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || status == HttpStatus.BAD_GATEWAY.value()
+                    || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || status == HttpStatus.GATEWAY_TIMEOUT.value();
+        }
+
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during retry backoff.", ex);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts calls and failures over a sliding time window without locks. The
+ * window is split into buckets, each of which packs its epoch and both counts
+ * into a single long, so recording a call is a single compare-and-set.
+ *
+ * @author ben
+ */
+public class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int EPOCH_SHIFT = 2 * COUNT_BITS;
+    private static final long EPOCH_MASK = (1L << (64 - EPOCH_SHIFT)) - 1;
+
+    private final long bucketNanos;
+    private final AtomicLongArray buckets;
+    private final LongSupplier nanoClock;
+
+    /**
+     * @param windowMillis Length of the window in milliseconds.
+     * @param bucketCount Number of buckets, the window is split into.
+     */
+    public SlidingWindowCounter(long windowMillis, int bucketCount) {
+        this(windowMillis, bucketCount, System::nanoTime);
+    }
+
+    /**
+     * @param windowMillis Length of the window in milliseconds.
+     * @param bucketCount Number of buckets, the window is split into.
+     * @param nanoClock Clock like {@link System#nanoTime()}, which the
+     * buckets are derived from.
+     */
+    SlidingWindowCounter(long windowMillis, int bucketCount, LongSupplier nanoClock) {
+        this.bucketNanos = Math.max(1, windowMillis * 1_000_000 / bucketCount);
+        this.buckets = new AtomicLongArray(bucketCount);
+        this.nanoClock = nanoClock;
+    }
+
+    public void record(boolean failure) {
+        var epoch = currentEpoch();
+        var index = (int) (epoch % buckets.length());
+
+        while (true) {
+            var current = buckets.get(index);
+            long next;
+
+            if (epochOf(current) != epoch) {
+                next = pack(epoch, 1, failure ? 1 : 0);
+            } else {
+                var calls = callsOf(current);
+                var failures = failuresOf(current);
+
+                if (calls == COUNT_MASK) {
+                    // Saturated. The rate is still accurate enough.
+                    return;
+                }
+
+                next = pack(epoch, calls + 1, failure ? failures + 1 : failures);
+            }
+
+            if (buckets.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of calls in the window.
+     *
+     * @return
+     */
+    public long getCalls() {
+        return sum(false);
+    }
+
+    /**
+     * Returns the number of failed calls in the window.
+     *
+     * @return
+     */
+    public long getFailures() {
+        return sum(true);
+    }
+
+    /**
+     * Discards all recorded calls.
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    private long sum(boolean failures) {
+        var epoch = currentEpoch();
+        long sum = 0;
+
+        for (int i = 0; i < buckets.length(); i++) {
+            var value = buckets.get(i);
+            var age = (epoch - epochOf(value)) & EPOCH_MASK;
+
+            if (value != 0 && age < buckets.length()) {
+                sum += failures ? failuresOf(value) : callsOf(value);
+            }
+        }
+
+        return sum;
+    }
+
+    private long currentEpoch() {
+        return (nanoClock.getAsLong() / bucketNanos) & EPOCH_MASK;
+    }
+
+    private static long pack(long epoch, long calls, long failures) {
+        return (epoch << EPOCH_SHIFT) | (calls << COUNT_BITS) | failures;
+    }
+
+    private static long epochOf(long value) {
+        return (value >>> EPOCH_SHIFT) & EPOCH_MASK;
+    }
+
+    private static long callsOf(long value) {
+        return (value >>> COUNT_BITS) & COUNT_MASK;
+    }
+
+    private static long failuresOf(long value) {
+        return value & COUNT_MASK;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Iterator;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends requests with bodies, that are streamed with chunked transfer encoding
+ * instead of being buffered in memory. Used by generated request classes,
+ * whose body param is an {@link InputStream}, a {@link Resource}, an
+ * {@link Iterator} or a reactive streams <code>Publisher</code>.
+ * <p>
+ * Input streams and resources are sent as they are. The elements of iterators
+ * and publishers are written one by one as json array.
+ *
+ * @author ben
+ */
+public class StreamingUploads {
+
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    private StreamingUploads() {
+    }
+
+    /**
+     * Sends the request with a streamed body and reads the response using the
+     * message converters and error handler of the given rest template.
+     * <p>
+     * The request is created by the request factory of the rest template, so
+     * its http client, timeouts and pool are used. A
+     * {@link PooledRequestFactory}, like the one of the generated
+     * <code>XxxRequests</code> factories, streams the body. Other factories
+     * stream it only, if they do not buffer request bodies. A rest template
+     * with interceptors buffers the body anyway.
+     *
+     * @param <T>
+     * @param restTemplate
+     * @param uri
+     * @param method
+     * @param headers
+     * @param body An input stream, resource or iterator. May be null.
+     * @param responseType
+     * @return
+     */
+    public static <T> ResponseEntity<T> exchange(RestTemplate restTemplate, URI uri, HttpMethod method, HttpHeaders headers, Object body, ParameterizedTypeReference<T> responseType) {
+        try {
+            var request = createRequest(restTemplate.getRequestFactory(), uri, method);
+            request.getHeaders().addAll(headers);
+
+            if (body != null) {
+                StreamingHttpOutputMessage.Body writer = createWriter(body, findObjectMapper(restTemplate), request.getHeaders());
+
+                if (request instanceof StreamingHttpOutputMessage) {
+                    ((StreamingHttpOutputMessage) request).setBody(writer);
+                } else {
+                    writer.writeTo(request.getBody());
+                }
+            }
+
+            try (var response = request.execute()) {
+                if (restTemplate.getErrorHandler().hasError(response)) {
+                    restTemplate.getErrorHandler().handleError(uri, method, response);
+                }
+
+                return restTemplate.<T>responseEntityExtractor(responseType.getType()).extractData(response);
+            }
+        } catch (IOException ex) {
+            throw new ResourceAccessException("I/O error on " + method + " request for \"" + uri + "\": " + ex.getMessage(), ex);
+        } finally {
+            // Stops the publisher, if the upload failed before the body was drained.
+            if (body instanceof PublisherIterator) {
+                ((PublisherIterator<?>) body).close();
+            }
+        }
+    }
+
+    private static ClientHttpRequest createRequest(ClientHttpRequestFactory factory, URI uri, HttpMethod method) throws IOException {
+        if (factory instanceof PooledRequestFactory) {
+            return ((PooledRequestFactory) factory).createStreamingRequest(uri, method);
+        }
+
+        return factory.createRequest(uri, method);
+    }
+
+    private static StreamingHttpOutputMessage.Body createWriter(Object body, ObjectMapper mapper, HttpHeaders headers) throws IOException {
+        if (body instanceof InputStream) {
+            setDefaultContentType(headers, MediaType.APPLICATION_OCTET_STREAM);
+            return out -> copy((InputStream) body, out);
+        }
+
+        if (body instanceof Resource) {
+            setDefaultContentType(headers, MediaType.APPLICATION_OCTET_STREAM);
+            return out -> copy(((Resource) body).getInputStream(), out);
+        }
+
+        if (body instanceof Iterator) {
+            setDefaultContentType(headers, MediaType.APPLICATION_JSON);
+            return out -> writeJsonArray((Iterator<?>) body, mapper, out);
+        }
+
+        throw new IllegalArgumentException("Unsupported streaming body of type " + body.getClass().getName() + ".");
+    }
+
+    private static void setDefaultContentType(HttpHeaders headers, MediaType contentType) {
+        if (headers.getContentType() == null) {
+            headers.setContentType(contentType);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        try (in) {
+            StreamUtils.copy(in, out);
+        }
+    }
+
+    private static void writeJsonArray(Iterator<?> elements, ObjectMapper mapper, OutputStream out) throws IOException {
+        // Do not close the generator, as this would close the body stream of the request.
+        var generator = mapper.createGenerator(StreamUtils.nonClosing(out));
+        generator.writeStartArray();
+
+        while (elements.hasNext()) {
+            generator.writeObject(elements.next());
+        }
+
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    private static ObjectMapper findObjectMapper(RestTemplate restTemplate) {
+        for (var converter : restTemplate.getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                return ((MappingJackson2HttpMessageConverter) converter).getObjectMapper();
+            }
+        }
+
+        return DEFAULT_OBJECT_MAPPER;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.lang.reflect.Array;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.Optional;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * Helpers for assembling request uris in generated request classes.
+ *
+ * @author ben
+ */
+public class Uris {
+
+    private Uris() {
+    }
+
+    /**
+     * Appends the query parameter with the given name and value to the uri.
+     * Null values are skipped, iterables and arrays are appended as repeated
+     * parameters.
+     *
+     * @param uri The uri, which is assembled.
+     * @param pathLength The length of the uri before the first query
+     * parameter was appended. Used to decide between '?' and '&amp;'.
+     * @param name
+     * @param value
+     */
+    public static void appendQueryParam(StringBuilder uri, int pathLength, String name, Object value) {
+        appendEncodedQueryParam(uri, pathLength, encodeQueryParam(name), value);
+    }
+
+    /**
+     * Like {@link #appendQueryParam(StringBuilder, int, String, Object)}, but
+     * with a name that is already encoded. Generated classes encode their
+     * parameter names at compile time.
+     *
+     * @param uri
+     * @param pathLength
+     * @param encodedName
+     * @param value
+     */
+    public static void appendEncodedQueryParam(StringBuilder uri, int pathLength, String encodedName, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        if (value instanceof Optional) {
+            appendEncodedQueryParam(uri, pathLength, encodedName, ((Optional<?>) value).orElse(null));
+            return;
+        }
+
+        if (value instanceof Iterable) {
+            for (var item : (Iterable<?>) value) {
+                appendEncodedQueryParam(uri, pathLength, encodedName, item);
+            }
+            return;
+        }
+
+        if (value.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(value); i++) {
+                appendEncodedQueryParam(uri, pathLength, encodedName, Array.get(value, i));
+            }
+            return;
+        }
+
+        uri.append(uri.length() == pathLength ? '?' : '&')
+                .append(encodedName)
+                .append('=')
+                .append(encodeQueryParam(String.valueOf(value)));
+    }
+
+    /**
+     * Encodes the given value as query parameter name or value. Values, that
+     * consist of unreserved characters only, are returned as they are.
+     *
+     * @param value
+     * @return
+     */
+    public static String encodeQueryParam(String value) {
+        return isUnreserved(value) ? value : UriUtils.encodeQueryParam(value, UTF_8);
+    }
+
+    /**
+     * Encodes the given value as path segment. Values, that consist of
+     * unreserved characters only, are returned as they are.
+     *
+     * @param value
+     * @return
+     */
+    public static String encodePathSegment(String value) {
+        return isUnreserved(value) ? value : UriUtils.encodePathSegment(value, UTF_8);
+    }
+
+    /**
+     * Checks whether the given value consists of unreserved characters only,
+     * which are never encoded (RFC 3986, section 2.3).
+     */
+    private static boolean isUnreserved(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            boolean unreserved = (c >= 'a' && c <= 'z')
+                    || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9')
+                    || c == '-' || c == '.' || c == '_' || c == '~';
+
+            if (!unreserved) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
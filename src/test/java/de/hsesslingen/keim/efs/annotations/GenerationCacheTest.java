@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import javax.tools.ToolProvider;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author ben
+ */
+public class GenerationCacheTest {
+
+    private static final String API_SOURCE = "package com.example;\n"
+            + "import de.hsesslingen.keim.efs.annotations.GenerateRequestClass;\n"
+            + "import org.springframework.web.bind.annotation.*;\n"
+            + "@GenerateRequestClass\n"
+            + "@RequestMapping(path = \"/stations\")\n"
+            + "public interface StationApi {\n"
+            + "    @GetMapping(\"/{id}\")\n"
+            + "    String getStation(@PathVariable String id);\n"
+            + "}\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void reusesSourceWithSameFingerprint() throws IOException {
+        var source = dir.resolve("Foo.java");
+        Files.writeString(source, "class Foo {}");
+
+        var cache = GenerationCache.load(dir);
+        cache.record("com.example.Foo", "abc", source.toUri());
+        cache.save();
+
+        var reloaded = GenerationCache.load(dir);
+        assertEquals("class Foo {}", reloaded.readUpToDate("com.example.Foo", "abc"));
+    }
+
+    @Test
+    public void regeneratesOnChangedFingerprint() throws IOException {
+        var source = dir.resolve("Foo.java");
+        Files.writeString(source, "class Foo {}");
+
+        var cache = GenerationCache.load(dir);
+        cache.record("com.example.Foo", "abc", source.toUri());
+        cache.save();
+
+        assertNull(GenerationCache.load(dir).readUpToDate("com.example.Foo", "def"));
+    }
+
+    @Test
+    public void regeneratesDeletedSource() throws IOException {
+        var source = dir.resolve("Foo.java");
+        Files.writeString(source, "class Foo {}");
+
+        var cache = GenerationCache.load(dir);
+        cache.record("com.example.Foo", "abc", source.toUri());
+        cache.save();
+        Files.delete(source);
+
+        assertNull(GenerationCache.load(dir).readUpToDate("com.example.Foo", "abc"));
+    }
+
+    @Test
+    public void dropsEntriesNotUsedAgain() throws IOException {
+        var source = dir.resolve("Foo.java");
+        Files.writeString(source, "class Foo {}");
+
+        var cache = GenerationCache.load(dir);
+        cache.record("com.example.Foo", "abc", source.toUri());
+        cache.save();
+
+        // The next build does not generate Foo any more.
+        GenerationCache.load(dir).save();
+
+        assertNull(GenerationCache.load(dir).readUpToDate("com.example.Foo", "abc"));
+    }
+
+    @Test
+    public void keepsTimestampOfSourceWrittenAgain() throws IOException {
+        var source = dir.resolve("Foo.java");
+        Files.writeString(source, "class Foo {}");
+        var before = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(source, before);
+
+        var cache = GenerationCache.load(dir);
+        cache.record("com.example.Foo", "abc", source.toUri());
+        cache.save();
+
+        var reloaded = GenerationCache.load(dir);
+        var content = reloaded.readUpToDate("com.example.Foo", "abc");
+        Files.writeString(source, content);
+        reloaded.restoreLastModified("com.example.Foo", source.toUri());
+
+        assertEquals(before, Files.getLastModifiedTime(source));
+    }
+
+    @Test
+    public void leavesGeneratedSourceUntouchedInSecondBuild() throws IOException {
+        var sourceDir = Files.createDirectories(dir.resolve("src/com/example"));
+        var apiFile = Files.writeString(sourceDir.resolve("StationApi.java"), API_SOURCE);
+        var generatedDir = Files.createDirectories(dir.resolve("generated"));
+        var generatedFile = generatedDir.resolve("com/example/StationApiRequests/GetStationRequest.java");
+        var cacheDir = dir.resolve("cache");
+        var classDir = Files.createDirectories(dir.resolve("classes"));
+        var old = FileTime.fromMillis(1_000_000_000_000L);
+        String content = null;
+
+        for (int build = 1; build <= 2; build++) {
+            var result = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                    "-implicit:class",
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-processor", RequestClassGenerator.class.getName(),
+                    "-A" + RequestClassGenerator.OPTION_CACHE_DIR + "=" + cacheDir,
+                    "-s", generatedDir.toString(),
+                    "-d", classDir.toString(),
+                    apiFile.toString());
+
+            assertEquals(0, result, "Compilation of build " + build + " failed.");
+
+            if (build == 1) {
+                // Back-dated, so a rewrite within the same clock tick would not go unnoticed.
+                Files.setLastModifiedTime(generatedFile, old);
+                content = Files.readString(generatedFile);
+            }
+        }
+
+        assertEquals(old, Files.getLastModifiedTime(generatedFile));
+        assertEquals(content, Files.readString(generatedFile));
+    }
+
+    @Test
+    public void compilesUnchangedClassesAfterClassOutputWasWiped() throws IOException {
+        var sourceDir = Files.createDirectories(dir.resolve("src/com/example"));
+        var apiFile = Files.writeString(sourceDir.resolve("StationApi.java"), API_SOURCE);
+        var generatedDir = Files.createDirectories(dir.resolve("generated"));
+        var cacheDir = dir.resolve("cache");
+
+        for (int build = 1; build <= 2; build++) {
+            // Like mvn clean: the classes are gone, but the cache and generated sources may survive.
+            var classDir = dir.resolve("classes" + build);
+            Files.createDirectories(classDir);
+
+            var result = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                    "-implicit:class",
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-processor", RequestClassGenerator.class.getName(),
+                    "-A" + RequestClassGenerator.OPTION_CACHE_DIR + "=" + cacheDir,
+                    "-s", generatedDir.toString(),
+                    "-d", classDir.toString(),
+                    apiFile.toString());
+
+            assertEquals(0, result, "Compilation of build " + build + " failed.");
+            assertTrue(Files.isRegularFile(classDir.resolve("com/example/StationApiRequests/GetStationRequest.class")));
+            assertTrue(Files.isRegularFile(classDir.resolve("com/example/StationApiRequests/StationApiRequests.class")));
+        }
+    }
+}
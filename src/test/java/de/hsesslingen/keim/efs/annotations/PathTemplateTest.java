@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import de.hsesslingen.keim.efs.annotations.PathTemplate.Segment;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author ben
+ */
+public class PathTemplateTest {
+
+    @Test
+    public void splitsLiteralsAndVariables() {
+        var template = PathTemplate.parse("/stations/{id}/bookings/{bookingId}");
+
+        assertEquals(List.of(
+                Segment.literal("/stations/"),
+                Segment.variable("id"),
+                Segment.literal("/bookings/"),
+                Segment.variable("bookingId")), template.getSegments());
+        assertEquals("/stations//bookings/".length(), template.getLiteralLength());
+        assertEquals(2, template.getVariableCount());
+    }
+
+    @Test
+    public void stripsRegexConstraints() {
+        var template = PathTemplate.parse("/stations/{ id :[0-9]{1,5}}.json");
+
+        assertEquals(List.of(
+                Segment.literal("/stations/"),
+                Segment.variable("id"),
+                Segment.literal(".json")), template.getSegments());
+    }
+
+    @Test
+    public void keepsUnbalancedBracesAsLiteral() {
+        var template = PathTemplate.parse("/stations/{id");
+
+        assertEquals(List.of(Segment.literal("/stations/{id")), template.getSegments());
+        assertEquals(0, template.getVariableCount());
+    }
+
+    @Test
+    public void parsesAdjacentVariables() {
+        var template = PathTemplate.parse("{a}{b}");
+
+        assertEquals(List.of(Segment.variable("a"), Segment.variable("b")), template.getSegments());
+        assertEquals(0, template.getLiteralLength());
+    }
+
+    @Test
+    public void parsesEmptyTemplate() {
+        assertTrue(PathTemplate.parse("").getSegments().isEmpty());
+        assertTrue(PathTemplate.parse(null).getSegments().isEmpty());
+    }
+}
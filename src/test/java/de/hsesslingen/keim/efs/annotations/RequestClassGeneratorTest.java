@@ -0,0 +1,318 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations;
+
+import com.sun.net.httpserver.HttpServer;
+import de.hsesslingen.keim.efs.annotations.runtime.BatchResult;
+import de.hsesslingen.keim.restutils.AbstractRequest;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLClassLoader;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import static java.util.stream.Collectors.toList;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+
+/**
+ *
+ * @author ben
+ */
+public class RequestClassGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void compilesApiUsingAllFeatures() throws IOException {
+        var errors = compile("package com.example;\n"
+                + "import de.hsesslingen.keim.efs.annotations.*;\n"
+                + "import java.util.List;\n"
+                + "import org.springframework.web.bind.annotation.*;\n"
+                + "@GenerateRequestClass(metrics = true, codec = GenerateRequestClass.Codec.JSON, prototypes = true, compressRequestsAbove = 1024)\n"
+                + "@Retry(maxAttempts = 2, budgetRatio = 0.2)\n"
+                + "@RateLimit(permitsPerSecond = 50, burst = 10)\n"
+                + "@CircuitBreaker(minimumCalls = 4)\n"
+                + "@RequestMapping(path = \"/stations\")\n"
+                + "public interface StationApi {\n"
+                + "    @CacheResponse(ttl = 30, maxEntries = 500, varyHeaders = \"X-Token\")\n"
+                + "    @ConditionalRequest\n"
+                + "    @GetMapping(\"/{id}\")\n"
+                + "    String getStation(@PathVariable(\"id\") String id, @RequestParam(name = \"lang\", required = false) String lang, @RequestHeader(name = \"X-Token\") String token);\n"
+                + "    @Retry(maxAttempts = 4, hedge = true)\n"
+                + "    @AdaptiveConcurrency(maxWait = 50)\n"
+                + "    @CoalesceRequests\n"
+                + "    @GetMapping(\"\")\n"
+                + "    List<String> getStations(@RequestParam(name = \"lat\") Double lat, @RequestParam(name = \"lon\", required = false, defaultValue = \"9.3\") Double lon);\n"
+                + "    @PostMapping(\"/{id}/bookings\")\n"
+                + "    String createBooking(@PathVariable String id, @RequestBody Object body);\n"
+                + "    @RateLimit(permitsPerSecond = 0.5, mode = RateLimit.Mode.FAIL_FAST)\n"
+                + "    @PostMapping(\"/upload\")\n"
+                + "    String upload(@RequestBody java.io.InputStream data);\n"
+                + "    @PostMapping(\"/bulk\")\n"
+                + "    String bulk(@RequestBody java.util.Iterator<String> items);\n"
+                + "    @PostMapping(\"/publish\")\n"
+                + "    String publish(@RequestBody org.reactivestreams.Publisher<String> items);\n"
+                + "}\n");
+
+        assertEquals(List.of(), errors);
+
+        var classes = dir.resolve("classes/com/example/StationApiRequests");
+        assertTrue(Files.isRegularFile(classes.resolve("StationApiRequests.class")));
+
+        for (var requestClass : List.of("GetStationRequest", "GetStationsRequest", "CreateBookingRequest", "UploadRequest", "BulkRequest", "PublishRequest")) {
+            assertTrue(Files.isRegularFile(classes.resolve(requestClass + ".class")), requestClass);
+            assertTrue(Files.isRegularFile(classes.resolve(requestClass + "$Batch.class")), requestClass);
+            assertTrue(Files.isRegularFile(classes.resolve(requestClass + "$Prototype.class")), requestClass);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sendsRequestsOfGeneratedClasses() throws Exception {
+        var errors = compile("package com.example;\n"
+                + "import de.hsesslingen.keim.efs.annotations.*;\n"
+                + "import org.springframework.web.bind.annotation.*;\n"
+                + "@GenerateRequestClass(prototypes = true)\n"
+                + "@RequestMapping(path = \"/stations\")\n"
+                + "public interface StationApi {\n"
+                + "    @CacheResponse(ttl = 30)\n"
+                + "    @GetMapping(\"/{id}\")\n"
+                + "    String getStation(@PathVariable String id);\n"
+                + "}\n");
+
+        assertEquals(List.of(), errors);
+
+        var hits = new AtomicInteger();
+        var server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/stations", exchange -> {
+            hits.incrementAndGet();
+            var response = ("station " + exchange.getRequestURI().getPath().substring("/stations/".length())).getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        try (var loader = new URLClassLoader(new URL[]{dir.resolve("classes").toUri().toURL()}, getClass().getClassLoader())) {
+            var factoryClass = loader.loadClass("com.example.StationApiRequests.StationApiRequests");
+            var baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+
+            try (var factory = (AutoCloseable) factoryClass.getConstructor(String.class).newInstance(baseUrl)) {
+                var prototype = factoryClass.getMethod("getStationPrototype").invoke(factory);
+                var go = prototype.getClass().getMethod("go", String.class);
+
+                assertEquals("station 1", ((ResponseEntity<String>) go.invoke(prototype, "1")).getBody());
+                assertEquals("station 1", ((ResponseEntity<String>) go.invoke(prototype, "1")).getBody());
+                assertEquals(1, hits.get());
+
+                var batch = factoryClass.getMethod("getStationBatch").invoke(factory);
+                var add = batch.getClass().getMethod("add", String.class);
+                add.invoke(batch, "2");
+                add.invoke(batch, "3");
+                var results = (List<BatchResult<ResponseEntity<String>>>) batch.getClass().getMethod("go").invoke(batch);
+
+                assertEquals("station 2", results.get(0).getOrThrow().getBody());
+                assertEquals("station 3", results.get(1).getOrThrow().getBody());
+                assertEquals(3, hits.get());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void reportsAnnotationsIgnoredByWebClientBackend() throws IOException {
+        var errors = compile("package com.example;\n"
+                + "import de.hsesslingen.keim.efs.annotations.*;\n"
+                + "import org.springframework.web.bind.annotation.*;\n"
+                + "@GenerateRequestClass(backend = GenerateRequestClass.Backend.WEBCLIENT, metrics = true, codec = GenerateRequestClass.Codec.JSON)\n"
+                + "@CircuitBreaker\n"
+                + "@RequestMapping(path = \"/providers\")\n"
+                + "public interface ProviderApi {\n"
+                + "    @Retry\n"
+                + "    @CacheResponse\n"
+                + "    @GetMapping(\"/{id}\")\n"
+                + "    String getProvider(@PathVariable String id);\n"
+                + "}\n");
+
+        assertEquals(4, errors.size(), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("@GenerateRequestClass(codec)")), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("@CircuitBreaker")), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("@Retry")), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("@CacheResponse")), errors.toString());
+    }
+
+    @Test
+    public void compilesWebClientApi() throws IOException {
+        var errors = compile("package com.example;\n"
+                + "import de.hsesslingen.keim.efs.annotations.*;\n"
+                + "import java.util.List;\n"
+                + "import org.springframework.web.bind.annotation.*;\n"
+                + "@GenerateRequestClass(backend = GenerateRequestClass.Backend.WEBCLIENT, metrics = true)\n"
+                + "@RequestMapping(path = \"/providers\")\n"
+                + "public interface ProviderApi {\n"
+                + "    @GetMapping(\"/{id}/stations\")\n"
+                + "    List<String> getStations(@PathVariable String id, @RequestHeader(name = \"X-Token\") String token);\n"
+                + "    @PutMapping(\"/{id}\")\n"
+                + "    String update(@PathVariable String id, @RequestBody String body);\n"
+                + "}\n");
+
+        assertEquals(List.of(), errors);
+        assertTrue(Files.isRegularFile(dir.resolve("classes/com/example/ProviderApiRequests/GetStationsRequest.class")));
+    }
+
+    @Test
+    public void overridesAllFluentMethodsOfAbstractRequest() throws Exception {
+        var errors = compile("package com.example;\n"
+                + "import de.hsesslingen.keim.efs.annotations.*;\n"
+                + "import org.springframework.web.bind.annotation.*;\n"
+                + "@GenerateRequestClass\n"
+                + "@RequestMapping(path = \"/items\")\n"
+                + "public interface ItemApi {\n"
+                + "    @PutMapping(\"/{id}\")\n"
+                + "    String putItem(@PathVariable String id, @RequestParam String uri, @RequestBody Object body, @RequestHeader(name = \"X-Headers\") String headers);\n"
+                + "}\n");
+
+        assertEquals(List.of(), errors);
+
+        try (var loader = new URLClassLoader(new URL[]{dir.resolve("classes").toUri().toURL()}, getClass().getClassLoader())) {
+            var requestClass = loader.loadClass("com.example.ItemApiRequests.PutItemRequest");
+
+            for (var method : AbstractRequest.class.getMethods()) {
+                if (method.getReturnType() != AbstractRequest.class || Modifier.isFinal(method.getModifiers())) {
+                    continue;
+                }
+
+                // Either overridden or replaced by the builder method of a param, like uri(String) here.
+                var declared = requestClass.getDeclaredMethod(method.getName(), method.getParameterTypes());
+                assertEquals(requestClass, declared.getReturnType(), declared.toString());
+            }
+
+            requestClass.getDeclaredField("$customized");
+        }
+    }
+
+    @Test
+    public void renamesParamsClashingWithGeneratedCode() throws IOException {
+        var errors = compile("package com.example.model;\n"
+                + "public class Batch {\n"
+                + "}\n",
+                "package com.example.model;\n"
+                + "public class Prototype {\n"
+                + "}\n",
+                "package com.example;\n"
+                + "import com.example.model.*;\n"
+                + "import de.hsesslingen.keim.efs.annotations.*;\n"
+                + "import org.springframework.web.bind.annotation.*;\n"
+                + "@GenerateRequestClass(prototypes = true)\n"
+                + "@RequestMapping(path = \"/batches\")\n"
+                + "public interface BatchApi {\n"
+                + "    @PutMapping(\"/{id}\")\n"
+                + "    Batch putBatch(@PathVariable String id, @RequestBody Prototype body, @RequestParam String executor, @RequestParam String uri);\n"
+                + "}\n");
+
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    public void reportsNamesClashingWithGeneratedMembers() throws IOException {
+        var errors = compile("package com.example;\n"
+                + "import de.hsesslingen.keim.efs.annotations.*;\n"
+                + "import org.springframework.web.bind.annotation.*;\n"
+                + "@GenerateRequestClass\n"
+                + "@RequestMapping(path = \"/items\")\n"
+                + "public interface ItemApi {\n"
+                + "    @PostMapping(\"/close\")\n"
+                + "    String close();\n"
+                + "    @GetMapping(\"/{id}\")\n"
+                + "    String getItem(@PathVariable String id, @RequestHeader(name = \"X-Template\") String restTemplate);\n"
+                + "    @GetMapping(\"/batch\")\n"
+                + "    String getItemBatch();\n"
+                + "}\n");
+
+        assertEquals(3, errors.size(), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("The endpoint ItemApi.close ")), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("The param restTemplate ")), errors.toString());
+        assertTrue(errors.stream().anyMatch(e -> e.startsWith("The endpoint ItemApi.getItemBatch ")), errors.toString());
+    }
+
+    /**
+     * Compiles the given sources with the request class generator and returns
+     * the error messages.
+     */
+    private List<String> compile(String... sources) throws IOException {
+        var sourceFiles = new ArrayList<Path>();
+
+        for (var source : sources) {
+            var packageName = find(source, "package ([\\w.]+);");
+            var simpleName = find(source, "public (?:interface|class) (\\w+)");
+            var packageDir = Files.createDirectories(dir.resolve("src").resolve(packageName.replace('.', '/')));
+            sourceFiles.add(Files.writeString(packageDir.resolve(simpleName + ".java"), source));
+        }
+
+        var classDir = Files.createDirectories(dir.resolve("classes"));
+        var generatedDir = Files.createDirectories(dir.resolve("generated"));
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+        try (var fileManager = compiler.getStandardFileManager(null, null, null)) {
+            compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-implicit:class",
+                            "-classpath", System.getProperty("java.class.path"),
+                            "-processor", RequestClassGenerator.class.getName(),
+                            "-s", generatedDir.toString(),
+                            "-d", classDir.toString()),
+                    null, fileManager.getJavaFileObjectsFromPaths(sourceFiles))
+                    .call();
+        }
+
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(Locale.ROOT))
+                .collect(toList());
+    }
+
+    private static String find(String source, String regex) {
+        var matcher = Pattern.compile(regex).matcher(source);
+        assertTrue(matcher.find(), regex);
+        return matcher.group(1);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import de.hsesslingen.keim.efs.annotations.runtime.ApiCircuitBreaker.State;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ *
+ * @author ben
+ */
+public class ApiCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final CircuitBreakerConfig config = new CircuitBreakerConfig()
+            .setFailureRateThreshold(50)
+            .setMinimumCalls(4)
+            .setSlidingWindow(10_000)
+            .setOpenDuration(1000);
+
+    @Test
+    public void staysClosedBelowMinimumCalls() {
+        var breaker = breaker();
+
+        failCalls(breaker, 3);
+
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void opensAtFailureRateAndRejectsCalls() {
+        var breaker = breaker();
+
+        succeedCalls(breaker, 2);
+        failCalls(breaker, 2);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertThrows(CallRejectedException.class, () -> breaker.execute(this::ok));
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void closesAfterSuccessfulProbe() {
+        var breaker = breaker();
+        failCalls(breaker, 4);
+
+        advance(999);
+        assertThrows(CallRejectedException.class, () -> breaker.execute(this::ok));
+
+        advance(1);
+        var stateDuringProbe = breaker.execute(breaker::getState);
+
+        assertEquals(State.HALF_OPEN, stateDuringProbe);
+        assertEquals(State.CLOSED, breaker.getState());
+
+        // The failures before the probe are forgotten.
+        failCalls(breaker, 3);
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void staysOpenAfterFailedProbe() {
+        var breaker = breaker();
+        failCalls(breaker, 4);
+
+        advance(1000);
+        failCalls(breaker, 1);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertThrows(CallRejectedException.class, () -> breaker.execute(this::ok));
+
+        advance(1000);
+        breaker.execute(this::ok);
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void staysOpenIfProbeIsRejectedByInnerLimit() {
+        var breaker = breaker();
+        failCalls(breaker, 4);
+
+        advance(1000);
+        assertThrows(CallRejectedException.class, () -> breaker.execute(() -> {
+            throw new CallRejectedException("The rate limit is exceeded.");
+        }));
+
+        assertEquals(State.OPEN, breaker.getState());
+
+        // The next caller may send the probe.
+        breaker.execute(this::ok);
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void doesNotCountInnerRejections() {
+        var breaker = breaker();
+        succeedCalls(breaker, 2);
+        failCalls(breaker, 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(CallRejectedException.class, () -> breaker.execute(() -> {
+                throw new CallRejectedException("The concurrency limit is reached.");
+            }));
+        }
+
+        // Two of four counted calls failed. Counting the rejections as successes would keep the rate below the threshold.
+        failCalls(breaker, 1);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void ignoresClientErrors() {
+        var breaker = breaker();
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpClientErrorException.class, () -> breaker.execute(() -> {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            }));
+        }
+
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void forgetsFailuresOutsideOfWindow() {
+        var breaker = breaker();
+        failCalls(breaker, 3);
+
+        advance(10_000);
+        failCalls(breaker, 1);
+
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void rejectsCallsAboveBulkhead() {
+        var breaker = new ApiCircuitBreaker("TestApi", config.setMaxConcurrentCalls(1), clock::get);
+
+        var result = breaker.execute(() -> {
+            assertThrows(CallRejectedException.class, () -> breaker.execute(this::ok));
+            return "outer";
+        });
+
+        assertEquals("outer", result);
+        assertEquals("ok", breaker.execute(this::ok));
+    }
+
+    @Test
+    public void keepsBulkheadUntilStreamIsClosed() {
+        var breaker = new ApiCircuitBreaker("TestApi", config.setMaxConcurrentCalls(1), clock::get);
+
+        try (var stream = breaker.executeStreaming(() -> Stream.of("a", "b"))) {
+            assertEquals(2, stream.count());
+            assertThrows(CallRejectedException.class, () -> breaker.execute(this::ok));
+        }
+
+        assertEquals("ok", breaker.execute(this::ok));
+    }
+
+    @Test
+    public void freesBulkheadIfStreamingCallFails() {
+        var breaker = new ApiCircuitBreaker("TestApi", config.setMaxConcurrentCalls(1), clock::get);
+
+        assertThrows(HttpServerErrorException.class, () -> breaker.executeStreaming(() -> {
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        }));
+
+        assertEquals("ok", breaker.execute(this::ok));
+    }
+
+    private ApiCircuitBreaker breaker() {
+        return new ApiCircuitBreaker("TestApi", config, clock::get);
+    }
+
+    private String ok() {
+        calls.incrementAndGet();
+        return "ok";
+    }
+
+    private void succeedCalls(ApiCircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.execute(this::ok);
+        }
+    }
+
+    private void failCalls(ApiCircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertThrows(HttpServerErrorException.class, () -> breaker.execute(() -> {
+                calls.incrementAndGet();
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }));
+        }
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author ben
+ */
+public class BatchExecutorTest {
+
+    @Test
+    public void returnsResultsInOrderOfRequests() {
+        var executor = Executors.newFixedThreadPool(4);
+
+        try {
+            var requests = IntStream.range(0, 20).boxed().collect(toList());
+
+            var results = BatchExecutor.execute(requests, i -> {
+                // Later requests finish first.
+                sleep(20 - i);
+                return i * 2;
+            }, 4, executor);
+
+            assertEquals(20, results.size());
+
+            for (int i = 0; i < 20; i++) {
+                assertEquals(Integer.valueOf(i * 2), results.get(i).getOrThrow());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void limitsCallsInFlight() {
+        var executor = Executors.newFixedThreadPool(8);
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+
+        try {
+            BatchExecutor.execute(IntStream.range(0, 40).boxed().collect(toList()), i -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                sleep(2);
+                inFlight.decrementAndGet();
+                return i;
+            }, 3, executor);
+
+            assertTrue(maxInFlight.get() <= 3, "max in flight: " + maxInFlight.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void reportsFailuresSeparately() {
+        var results = BatchExecutor.execute(List.of(1, 2, 3), i -> {
+            if (i == 2) {
+                throw new IllegalStateException("failed " + i);
+            }
+            return i;
+        }, 2, Runnable::run);
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("failed 2", results.get(1).getError().getMessage());
+        assertTrue(results.get(1).getError() instanceof IllegalStateException);
+        assertThrows(IllegalStateException.class, () -> results.get(1).getOrThrow());
+        assertEquals(Integer.valueOf(3), results.get(2).getOrThrow());
+    }
+
+    @Test
+    public void reportsRejectedTasks() {
+        var results = BatchExecutor.execute(List.of(1, 2), i -> i, 1, task -> {
+            throw new RejectedExecutionException("full");
+        });
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).getError() instanceof RejectedExecutionException);
+        assertTrue(results.get(1).getError() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void rejectsMaxConcurrencyBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> BatchExecutor.execute(List.of(1), i -> i, 0, Runnable::run));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
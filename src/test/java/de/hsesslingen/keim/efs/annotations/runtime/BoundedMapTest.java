@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author ben
+ */
+public class BoundedMapTest {
+
+    @Test
+    public void evictsEldestEntries() {
+        var map = new BoundedMap<String>(2);
+
+        assertEquals(0, map.put("a", "1"));
+        assertEquals(0, map.put("b", "2"));
+        assertEquals(1, map.put("c", "3"));
+
+        assertNull(map.get("a"));
+        assertEquals("2", map.get("b"));
+        assertEquals("3", map.get("c"));
+    }
+
+    @Test
+    public void evictsReplacedValueAsNewest() {
+        var map = new BoundedMap<String>(2);
+        map.put("a", "1");
+        map.put("b", "2");
+
+        map.put("a", "fresh");
+        map.put("c", "3");
+
+        assertEquals("fresh", map.get("a"));
+        assertNull(map.get("b"));
+        assertEquals(2, map.queued());
+    }
+
+    @Test
+    public void forgetsRemovedEntries() {
+        var map = new BoundedMap<String>(2);
+        map.put("a", "1");
+
+        assertTrue(map.remove("a"));
+        assertFalse(map.remove("a"));
+        assertEquals(0, map.queued());
+
+        // The removed slot is not evicted in place of the new value.
+        map.put("a", "2");
+        map.put("b", "3");
+        assertEquals("2", map.get("a"));
+    }
+
+    @Test
+    public void staysBoundedUnderConcurrentPuts() throws Exception {
+        var map = new BoundedMap<Integer>(50);
+
+        run(8, thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                var key = (i * 31 + thread) % 200;
+                map.put(key, key);
+                assertTrue(map.size() <= 50 + 8, "Size " + map.size());
+            }
+        });
+
+        assertTrue(map.size() <= 50);
+
+        // Each entry left behind is still queued and can be evicted.
+        for (int i = 0; i < 50; i++) {
+            map.put("new" + i, -1);
+        }
+
+        for (int key = 0; key < 200; key++) {
+            assertNull(map.get(key));
+        }
+        assertEquals(50, map.size());
+    }
+
+    @Test
+    public void keepsValuesOfConcurrentPutsAndRemoves() throws Exception {
+        var map = new BoundedMap<Integer>(10);
+
+        run(4, thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                var key = i % 20;
+
+                if (thread == 0) {
+                    map.remove(key);
+                } else {
+                    map.put(key, key);
+                }
+
+                var value = map.get(key);
+                assertTrue(value == null || value == key, "Value " + value + " for key " + key);
+            }
+        });
+
+        assertTrue(map.size() <= 10);
+    }
+
+    static void run(int threads, ThreadBody body) throws Exception {
+        var pool = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<Void>>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                var thread = t;
+                futures.add(pool.submit((Callable<Void>) () -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (var future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    interface ThreadBody {
+
+        void run(int thread) throws Exception;
+    }
+}
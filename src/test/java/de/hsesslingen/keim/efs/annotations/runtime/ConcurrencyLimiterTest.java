@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ *
+ * @author ben
+ */
+public class ConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void rejectsCallsAboveLimit() {
+        var limiter = limiter(1, 0);
+
+        var result = limiter.execute(() -> {
+            assertThrows(CallRejectedException.class, () -> limiter.execute(() -> "inner"));
+            return "outer";
+        });
+
+        assertEquals("outer", result);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void raisesLimitWhileItIsUsed() {
+        var limiter = limiter(2, 0);
+
+        limiter.execute(() -> call(1));
+        assertEquals(3, limiter.getLimit());
+
+        // A single call uses less than half of the limit now.
+        limiter.execute(() -> call(1));
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void decreasesLimitOnceOnOverloadPerRoundTrip() {
+        var limiter = limiter(8, 0);
+
+        assertThrows(HttpServerErrorException.class, () -> limiter.execute(() -> {
+            // Started before the decrease, so its failure does not decrease the limit again.
+            assertThrows(HttpServerErrorException.class, () -> limiter.execute(this::overloaded));
+            assertEquals(4, limiter.getLimit());
+            return overloaded();
+        }));
+        assertEquals(4, limiter.getLimit());
+
+        assertThrows(HttpServerErrorException.class, () -> limiter.execute(this::overloaded));
+        assertEquals(2, limiter.getLimit());
+
+        assertThrows(HttpServerErrorException.class, () -> limiter.execute(this::overloaded));
+        assertThrows(HttpServerErrorException.class, () -> limiter.execute(this::overloaded));
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void decreasesLimitOnSlowCalls() {
+        var limiter = limiter(10, 0);
+
+        // Establishes the reference latency of 1 ms.
+        for (int i = 0; i < 100; i++) {
+            limiter.execute(() -> call(1));
+        }
+        var limit = limiter.getLimit();
+
+        limiter.execute(() -> call(2));
+        assertEquals(limit, limiter.getLimit());
+
+        limiter.execute(() -> call(3));
+        assertEquals(limit / 2, limiter.getLimit());
+    }
+
+    @Test
+    public void rejectsWaitingCallAfterMaxWaitAndRecovers() throws Exception {
+        var limiter = limiter(1, 50);
+        var release = new CountDownLatch(1);
+        var holder = occupy(limiter, release);
+
+        var start = System.nanoTime();
+        assertThrows(CallRejectedException.class, () -> limiter.execute(() -> "waiting"));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+
+        assertEquals("free", limiter.execute(() -> "free"));
+    }
+
+    @Test
+    public void passesFreedSlotToWaitingCall() throws Exception {
+        var limiter = limiter(1, TimeUnit.MINUTES.toMillis(1));
+        var release = new CountDownLatch(1);
+        var holder = occupy(limiter, release);
+
+        var waiting = CompletableFuture.supplyAsync(() -> limiter.execute(() -> "waited"));
+        assertFalse(waiting.isDone());
+
+        release.countDown();
+
+        assertEquals("waited", waiting.get(5, TimeUnit.SECONDS));
+        assertEquals("held", holder.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void keepsSlotUntilStreamIsClosed() {
+        var limiter = new ConcurrencyLimiter(1, 1, 1, 0.5, 2, 0, clock::get);
+        var stream = limiter.executeStreaming(() -> Stream.of(call(1)));
+
+        assertEquals(1, limiter.getInFlight());
+        assertThrows(CallRejectedException.class, () -> limiter.execute(() -> "other"));
+
+        stream.close();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals("other", limiter.execute(() -> "other"));
+    }
+
+    @Test
+    public void measuresStreamingLatencyUntilCallReturns() {
+        var limiter = limiter(10, 0);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.executeStreaming(() -> Stream.of(call(1))).close();
+        }
+
+        var before = limiter.getLimit();
+
+        try (var stream = limiter.executeStreaming(() -> Stream.of(call(1)))) {
+            // Consuming the stream slowly is not a slow call.
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        }
+
+        assertTrue(limiter.getLimit() >= before);
+    }
+
+    private ConcurrencyLimiter limiter(int initialLimit, long maxWait) {
+        return new ConcurrencyLimiter(initialLimit, 1, 100, 0.5, 2, maxWait, clock::get);
+    }
+
+    /**
+     * Takes a slot of the limiter on another thread and keeps it until the
+     * latch is released.
+     */
+    private static CompletableFuture<String> occupy(ConcurrencyLimiter limiter, CountDownLatch release) throws InterruptedException {
+        var entered = new CountDownLatch(1);
+        var holder = CompletableFuture.supplyAsync(() -> limiter.execute(() -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "held";
+        }));
+
+        entered.await();
+        return holder;
+    }
+
+    private String call(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        return "ok";
+    }
+
+    private String overloaded() {
+        call(1);
+        throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
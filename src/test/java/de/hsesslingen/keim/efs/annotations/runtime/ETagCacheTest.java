@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ *
+ * @author ben
+ */
+public class ETagCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void returnsRememberedResponseIfNotModified() {
+        var cache = new ETagCache<String>(10);
+
+        var first = cache.execute("stations", new HttpHeaders(), headers -> server(headers, "\"v1\"", "stations"));
+        var second = cache.execute("stations", new HttpHeaders(), headers -> server(headers, "\"v1\"", "changed"));
+
+        assertEquals("stations", first.getBody());
+        assertSame(first, second);
+        assertEquals(1, cache.getNotModifiedCount());
+        assertEquals(1, cache.getModifiedCount());
+    }
+
+    @Test
+    public void replacesResponseOnNewETag() {
+        var cache = new ETagCache<String>(10);
+        cache.execute("stations", new HttpHeaders(), headers -> server(headers, "\"v1\"", "old"));
+
+        var changed = cache.execute("stations", new HttpHeaders(), headers -> server(headers, "\"v2\"", "new"));
+        var cached = cache.execute("stations", new HttpHeaders(), headers -> server(headers, "\"v2\"", "unused"));
+
+        assertEquals("new", changed.getBody());
+        assertEquals("new", cached.getBody());
+    }
+
+    @Test
+    public void remembersOnlySuccessfulResponsesWithETag() {
+        var cache = new ETagCache<String>(10);
+
+        cache.execute("a", new HttpHeaders(), headers -> ResponseEntity.ok("no etag"));
+        cache.execute("b", new HttpHeaders(), headers -> ResponseEntity.status(HttpStatus.ACCEPTED).eTag("\"v1\"").body("accepted"));
+        cache.execute("c", new HttpHeaders(), headers -> ResponseEntity.status(HttpStatus.NON_AUTHORITATIVE_INFORMATION).eTag("\"v1\"").body("ok"));
+
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getNotModifiedCount());
+    }
+
+    @Test
+    public void leavesHeadersOfCallerUntouched() {
+        var cache = new ETagCache<String>(10);
+        var headers = new HttpHeaders();
+        headers.set("X-Trace", "1");
+        cache.execute("stations", headers, h -> server(h, "\"v1\"", "stations"));
+
+        cache.execute("stations", headers, h -> {
+            assertEquals("1", h.getFirst("X-Trace"));
+            assertEquals("\"v1\"", h.getIfNoneMatch().get(0));
+            return server(h, "\"v1\"", "stations");
+        });
+
+        assertTrue(headers.getIfNoneMatch().isEmpty());
+    }
+
+    @Test
+    public void staysBoundedUnderConcurrentCalls() throws Exception {
+        var cache = new ETagCache<String>(20);
+
+        BoundedMapTest.run(8, thread -> {
+            for (int i = 0; i < 5_000; i++) {
+                var key = "key" + (i * 13 + thread) % 100;
+                var response = cache.execute(key, new HttpHeaders(), headers -> server(headers, "\"" + key + "\"", key));
+                assertEquals(key, response.getBody());
+            }
+        });
+
+        assertTrue(cache.size() <= 20, "Size " + cache.size());
+        assertEquals(40_000, cache.getModifiedCount() + cache.getNotModifiedCount());
+        assertEquals(40_000, calls.get());
+    }
+
+    /**
+     * Answers with <code>304</code>, if the request carries the current ETag.
+     */
+    private ResponseEntity<String> server(HttpHeaders headers, String etag, String body) {
+        calls.incrementAndGet();
+
+        if (headers.getIfNoneMatch().contains(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return ResponseEntity.ok().eTag(etag).body(body);
+    }
+}
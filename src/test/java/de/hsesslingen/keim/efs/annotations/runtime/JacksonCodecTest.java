@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ *
+ * @author ben
+ */
+public class JacksonCodecTest {
+
+    private static final TypeReference<Map<String, Integer>> MAP = new TypeReference<>() {
+    };
+
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+    private final AtomicReference<String> receivedContentType = new AtomicReference<>();
+    private final AtomicReference<String> receivedAccept = new AtomicReference<>();
+
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<String> responseContentType = new AtomicReference<>("application/json");
+    private final AtomicReference<String> responseBody = new AtomicReference<>("{\"count\":3}");
+
+    private HttpServer server;
+    private URI echo;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/echo", exchange -> {
+            receivedBody.set(new String(exchange.getRequestBody().readAllBytes(), UTF_8));
+            receivedContentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+            receivedAccept.set(exchange.getRequestHeaders().getFirst("Accept"));
+
+            var response = responseBody.get().getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", responseContentType.get());
+            exchange.sendResponseHeaders(status.get(), response.length == 0 ? -1 : response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        echo = URI.create("http://localhost:" + server.getAddress().getPort() + "/echo");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void writesAndReadsJson() {
+        var codec = JacksonCodec.json();
+
+        var response = codec.<Map<String, Integer>>exchange(new RestTemplate(), echo, HttpMethod.POST, new HttpHeaders(),
+                codec.writer(MAP), Map.of("count", 2), codec.reader(MAP));
+
+        assertEquals(Map.of("count", 3), response.getBody());
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("{\"count\":2}", receivedBody.get());
+        assertEquals("application/json", receivedContentType.get());
+        assertEquals("application/json", receivedAccept.get());
+    }
+
+    @Test
+    public void passesHeadersOn() {
+        var codec = JacksonCodec.json();
+        var headers = new HttpHeaders();
+        headers.add("Accept", "text/plain");
+        headers.add("X-Token", "secret");
+
+        codec.exchange(new RestTemplate(), echo, HttpMethod.GET, headers, null, null, null);
+
+        // Without reader the accept header is left as it is.
+        assertEquals("text/plain", receivedAccept.get());
+        assertEquals("", receivedBody.get());
+        assertNull(receivedContentType.get());
+    }
+
+    @Test
+    public void returnsNullForEmptyBody() {
+        responseBody.set("");
+        var codec = JacksonCodec.json();
+
+        var response = codec.exchange(new RestTemplate(), echo, HttpMethod.GET, new HttpHeaders(), null, null, codec.reader(MAP));
+
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void binaryCodecAcceptsJsonResponses() {
+        var mediaType = MediaType.valueOf("application/x-test");
+        var codec = new JacksonCodec(new ObjectMapper(), mediaType);
+
+        var response = codec.<Map<String, Integer>>exchange(new RestTemplate(), echo, HttpMethod.GET, new HttpHeaders(), null, null, codec.reader(MAP));
+
+        assertEquals(Map.of("count", 3), response.getBody());
+        assertEquals("application/x-test, application/json;q=0.5", receivedAccept.get());
+    }
+
+    @Test
+    public void usesErrorHandlerOfRestTemplate() {
+        status.set(404);
+        var codec = JacksonCodec.json();
+
+        var ex = assertThrows(HttpClientErrorException.class,
+                () -> codec.exchange(new RestTemplate(), echo, HttpMethod.GET, new HttpHeaders(), null, null, codec.reader(MAP)));
+        assertEquals(404, ex.getRawStatusCode());
+    }
+}
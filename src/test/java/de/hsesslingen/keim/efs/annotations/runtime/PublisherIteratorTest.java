@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ *
+ * @author ben
+ */
+public class PublisherIteratorTest {
+
+    @Test
+    public void iteratesAllElements() {
+        var publisher = new RangePublisher(100);
+        var items = new ArrayList<Integer>();
+
+        new PublisherIterator<>(publisher).forEachRemaining(items::add);
+
+        assertEquals(100, items.size());
+        assertEquals(Integer.valueOf(99), items.get(99));
+    }
+
+    @Test
+    public void requestsNoMoreThanItBuffers() {
+        var publisher = new RangePublisher(1000);
+        var iterator = new PublisherIterator<>(publisher);
+
+        iterator.next();
+
+        assertTrue(publisher.requested.get() <= 64, "Requested " + publisher.requested.get());
+    }
+
+    @Test
+    public void closeCancelsSubscription() {
+        var publisher = new RangePublisher(1000);
+        var iterator = new PublisherIterator<>(publisher);
+
+        iterator.next();
+        iterator.close();
+
+        assertTrue(publisher.cancelled.get());
+    }
+
+    @Test
+    public void closeBeforeSubscriptionCancelsOnSubscribe() {
+        var publisher = new DeferredPublisher();
+        var iterator = new PublisherIterator<Integer>(publisher);
+
+        iterator.close();
+        publisher.subscribeNow();
+
+        assertTrue(publisher.cancelled.get());
+    }
+
+    @Test
+    public void rethrowsFailureOfPublisher() {
+        Publisher<Integer> publisher = s -> {
+            s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            s.onError(new IllegalArgumentException("broken"));
+        };
+
+        var iterator = new PublisherIterator<>(publisher);
+        var ex = assertThrows(IllegalArgumentException.class, iterator::hasNext);
+        assertEquals("broken", ex.getMessage());
+    }
+
+    /**
+     * Synchronously emits the numbers from zero up to the given count, as
+     * they are requested.
+     */
+    private static class RangePublisher implements Publisher<Integer> {
+
+        private final int count;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        public RangePublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super Integer> s) {
+            s.onSubscribe(new Subscription() {
+                private int emitted;
+
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+
+                    for (long i = 0; i < n && emitted < count && !cancelled.get(); i++) {
+                        s.onNext(emitted++);
+                    }
+
+                    if (emitted == count && !cancelled.get()) {
+                        s.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+
+    /**
+     * Calls <code>onSubscribe</code> only when told to.
+     */
+    private static class DeferredPublisher implements Publisher<Integer> {
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private Subscriber<? super Integer> subscriber;
+
+        @Override
+        public void subscribe(Subscriber<? super Integer> s) {
+            this.subscriber = s;
+        }
+
+        public void subscribeNow() {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+}
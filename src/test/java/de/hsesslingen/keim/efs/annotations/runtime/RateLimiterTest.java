@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author ben
+ */
+public class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void passesBurstAndRejectsFurtherCalls() {
+        var limiter = RateLimiter.failFast(10, 3, clock::get);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertThrows(CallRejectedException.class, () -> limiter.execute(() -> "rejected"));
+    }
+
+    @Test
+    public void refillsAtRate() {
+        var limiter = RateLimiter.failFast(10, 3, clock::get);
+        exhaust(limiter);
+
+        advance(99);
+        assertFalse(limiter.tryAcquire());
+
+        advance(1);
+        assertEquals("ok", limiter.execute(() -> "ok"));
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void savesNoMoreThanBurstWhileIdle() {
+        var limiter = RateLimiter.failFast(10, 3, clock::get);
+
+        advance(10_000);
+
+        assertEquals(3, exhaust(limiter));
+    }
+
+    @Test
+    public void rejectsBlockingCallsBeyondMaxWait() {
+        var limiter = RateLimiter.blocking(10, 1, 50, clock::get);
+        limiter.acquire();
+
+        // The next slot is in 60 ms.
+        advance(40);
+        assertThrows(CallRejectedException.class, limiter::acquire);
+
+        advance(60);
+        limiter.acquire();
+    }
+
+    @Test
+    public void blocksUntilSlotHasCome() {
+        var limiter = RateLimiter.blocking(50, 1, 1000);
+        limiter.acquire();
+
+        var start = System.nanoTime();
+        limiter.acquire();
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15), "Waited " + (System.nanoTime() - start) + " ns");
+    }
+
+    private static int exhaust(RateLimiter limiter) {
+        var permits = 0;
+
+        while (limiter.tryAcquire()) {
+            permits++;
+        }
+
+        return permits;
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
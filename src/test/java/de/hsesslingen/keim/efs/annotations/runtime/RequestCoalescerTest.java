@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ *
+ * @author ben
+ */
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void sharesExecutionOfConcurrentCalls() throws Exception {
+        var release = new CountDownLatch(1);
+        var first = CompletableFuture.supplyAsync(() -> coalescer.execute("key", () -> await(release)));
+        waitFor(() -> calls.get() == 1);
+
+        var others = new ArrayList<CompletableFuture<String>>();
+
+        for (int i = 0; i < 4; i++) {
+            others.add(CompletableFuture.supplyAsync(() -> coalescer.execute("key", () -> await(release))));
+        }
+
+        waitFor(() -> coalescer.getCoalescedCount() == 4);
+        release.countDown();
+
+        assertEquals("result", first.get(5, TimeUnit.SECONDS));
+
+        for (var other : others) {
+            assertEquals("result", other.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, coalescer.getExecutedCount());
+    }
+
+    @Test
+    public void passesFailureToWaitingCalls() throws Exception {
+        var release = new CountDownLatch(1);
+        var first = CompletableFuture.runAsync(() -> coalescer.execute("key", () -> {
+            await(release);
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        }));
+        waitFor(() -> calls.get() == 1);
+
+        var other = new CompletableFuture<Throwable>();
+        new Thread(() -> {
+            try {
+                coalescer.execute("key", () -> "other");
+                other.complete(null);
+            } catch (Throwable ex) {
+                other.complete(ex);
+            }
+        }).start();
+
+        waitFor(() -> coalescer.getCoalescedCount() == 1);
+        release.countDown();
+
+        assertTrue(other.get(5, TimeUnit.SECONDS) instanceof HttpServerErrorException);
+        assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void executesAgainOnceCallCompleted() {
+        assertEquals("a", coalescer.execute("key", () -> "a"));
+        assertEquals("b", coalescer.execute("key", () -> "b"));
+
+        assertEquals(2, coalescer.getExecutedCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void executesAgainAfterFailure() {
+        assertThrows(IllegalStateException.class, () -> coalescer.execute("key", () -> {
+            throw new IllegalStateException();
+        }));
+
+        assertEquals("a", coalescer.execute("key", () -> "a"));
+    }
+
+    @Test
+    public void doesNotShareCallsWithDifferentKeys() throws Exception {
+        var result = coalescer.execute("a", () -> {
+            var inner = CompletableFuture.supplyAsync(() -> coalescer.execute("b", () -> "b"));
+
+            try {
+                return "a" + inner.get(5, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        assertEquals("ab", result);
+        assertEquals(2, coalescer.getExecutedCount());
+    }
+
+    private String await(CountDownLatch latch) {
+        calls.incrementAndGet();
+
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        return "result";
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out.");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author ben
+ */
+public class RequestExecutorsTest {
+
+    private static final ThreadLocal<String> CONTEXT = new ThreadLocal<>();
+
+    @AfterEach
+    public void removeTaskDecorator() {
+        RequestExecutors.setTaskDecorator(null);
+        CONTEXT.remove();
+    }
+
+    @Test
+    public void propagatesContextOfSubmittingThread() throws Exception {
+        RequestExecutors.setTaskDecorator(task -> {
+            var context = CONTEXT.get();
+            return () -> {
+                CONTEXT.set(context);
+                try {
+                    task.run();
+                } finally {
+                    CONTEXT.remove();
+                }
+            };
+        });
+
+        var pool = Executors.newSingleThreadExecutor();
+
+        try {
+            var executor = RequestExecutors.contextExecutor(pool);
+
+            CONTEXT.set("caller");
+            var seen = CompletableFuture.supplyAsync(CONTEXT::get, executor).get(5, TimeUnit.SECONDS);
+            assertEquals("caller", seen);
+
+            // The worker thread must not keep the context of the caller.
+            CONTEXT.remove();
+            var leftOver = CompletableFuture.supplyAsync(CONTEXT::get, pool).get(5, TimeUnit.SECONDS);
+            assertNull(leftOver);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void decoratesOnSubmittingThread() {
+        var decoratingThread = new Thread[1];
+        RequestExecutors.setTaskDecorator(task -> {
+            decoratingThread[0] = Thread.currentThread();
+            return task;
+        });
+
+        var ran = new boolean[1];
+        // Collects the task instead of running it, so the decorator can only have run on submit.
+        var submitted = new Runnable[1];
+        RequestExecutors.contextExecutor(task -> submitted[0] = task).execute(() -> ran[0] = true);
+
+        assertSame(Thread.currentThread(), decoratingThread[0]);
+        assertFalse(ran[0]);
+
+        submitted[0].run();
+        assertTrue(ran[0]);
+    }
+
+    @Test
+    public void runsTasksUndecoratedWithoutDecorator() throws Exception {
+        var pool = Executors.newSingleThreadExecutor();
+
+        try {
+            CONTEXT.set("caller");
+            var seen = CompletableFuture.supplyAsync(CONTEXT::get, RequestExecutors.contextExecutor(pool)).get(5, TimeUnit.SECONDS);
+            assertNull(seen);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void runsDefaultExecutorOnDaemonThreads() throws Exception {
+        var daemon = CompletableFuture.supplyAsync(() -> Thread.currentThread().isDaemon(), RequestExecutors.defaultExecutor())
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(daemon);
+    }
+}
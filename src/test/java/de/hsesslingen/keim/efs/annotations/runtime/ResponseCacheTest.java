@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ *
+ * @author ben
+ */
+public class ResponseCacheTest {
+
+    private static final URI STATIONS = URI.create("http://localhost/stations");
+
+    @Test
+    public void keyDiffersByCredentials() {
+        var restTemplate = new RestTemplate();
+
+        assertNotEquals(
+                ResponseCache.key(restTemplate, STATIONS, headers(HttpHeaders.AUTHORIZATION, "Bearer a")),
+                ResponseCache.key(restTemplate, STATIONS, headers(HttpHeaders.AUTHORIZATION, "Bearer b")));
+        assertNotEquals(
+                ResponseCache.key(restTemplate, STATIONS, headers(HttpHeaders.COOKIE, "session=a")),
+                ResponseCache.key(restTemplate, STATIONS, headers(HttpHeaders.COOKIE, "session=b")));
+    }
+
+    @Test
+    public void keyDiffersByRestTemplate() {
+        var headers = headers(HttpHeaders.ACCEPT, "application/json");
+
+        assertNotEquals(
+                ResponseCache.key(new RestTemplate(), STATIONS, headers),
+                ResponseCache.key(new RestTemplate(), STATIONS, headers));
+    }
+
+    @Test
+    public void keyIgnoresHeadersNotSelected() {
+        var restTemplate = new RestTemplate();
+
+        assertEquals(
+                ResponseCache.key(restTemplate, STATIONS, headers("X-Trace", "1")),
+                ResponseCache.key(restTemplate, STATIONS, headers("X-Trace", "2")));
+        assertNotEquals(
+                ResponseCache.key(restTemplate, STATIONS, headers("X-Trace", "1"), "X-Trace"),
+                ResponseCache.key(restTemplate, STATIONS, headers("X-Trace", "2"), "X-Trace"));
+    }
+
+    @Test
+    public void servesCachedResponseOnlyForSameCredentials() {
+        var cache = new ResponseCache<String>(1, TimeUnit.MINUTES, 10);
+        var restTemplate = new RestTemplate();
+
+        cache.get(ResponseCache.key(restTemplate, STATIONS, headers(HttpHeaders.AUTHORIZATION, "Bearer a")), () -> "a");
+
+        assertEquals("a", cache.get(ResponseCache.key(restTemplate, STATIONS, headers(HttpHeaders.AUTHORIZATION, "Bearer a")), () -> "other"));
+        assertEquals("b", cache.get(ResponseCache.key(restTemplate, STATIONS, headers(HttpHeaders.AUTHORIZATION, "Bearer b")), () -> "b"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void staysBoundedUnderConcurrentLoads() throws Exception {
+        // Without time to live every get reloads and replaces the entry.
+        var cache = new ResponseCache<String>(0, TimeUnit.SECONDS, 100);
+
+        BoundedMapTest.run(8, thread -> {
+            for (int i = 0; i < 10_000; i++) {
+                var key = "key" + (i * 7 + thread) % 300;
+                assertEquals(key, cache.get(key, () -> key));
+            }
+        });
+
+        assertTrue(cache.size() <= 100, "Size " + cache.size());
+        assertEquals(80_000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void evictsReloadedEntryLast() {
+        var cache = new ResponseCache<String>(1, TimeUnit.MINUTES, 2);
+        cache.get("a", () -> "1");
+        cache.get("b", () -> "2");
+
+        cache.invalidate("a");
+        cache.get("a", () -> "fresh");
+        cache.get("c", () -> "3");
+
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("fresh", cache.get("a", () -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", () -> "reloaded"));
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        var headers = new HttpHeaders();
+        headers.add(name, value);
+        return headers;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ *
+ * @author ben
+ */
+public class RetryPolicyTest {
+
+    private static final ThreadLocal<String> CONTEXT = new ThreadLocal<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    public void tearDown() {
+        RequestExecutors.setTaskDecorator(null);
+        CONTEXT.remove();
+    }
+
+    @Test
+    public void retriesUnavailableUpstream() {
+        var policy = new RetryPolicy(3, 0, 0, 2, false, 0);
+
+        var result = policy.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "ok";
+        }, new RetryBudget(0.1, 10));
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() {
+        var policy = new RetryPolicy(3, 0, 0, 2, false, 0);
+
+        assertThrows(HttpClientErrorException.class, () -> policy.execute(() -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        }, new RetryBudget(0.1, 10)));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void stopsAfterMaxAttempts() {
+        var policy = new RetryPolicy(3, 0, 0, 2, false, 0);
+
+        assertThrows(HttpServerErrorException.class, () -> policy.execute(this::unavailable, new RetryBudget(0.1, 10)));
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void stopsWhenBudgetIsUsedUp() {
+        var policy = new RetryPolicy(5, 0, 0, 2, false, 0);
+        var budget = new RetryBudget(0, 1);
+
+        assertThrows(HttpServerErrorException.class, () -> policy.execute(this::unavailable, budget));
+        assertEquals(2, calls.get());
+
+        assertThrows(HttpServerErrorException.class, () -> policy.execute(this::unavailable, budget));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void hedgesSlowCallWithContextOfCaller() {
+        var policy = new RetryPolicy(1, 0, 0, 2, true, 10);
+        var release = new CountDownLatch(1);
+        RequestExecutors.setTaskDecorator(contextPropagation());
+        CONTEXT.set("caller");
+
+        var result = policy.execute(() -> {
+            if (calls.incrementAndGet() == 1) {
+                // The first call does not complete before the test is done.
+                await(release);
+                return "first";
+            }
+            return "hedge of " + CONTEXT.get();
+        }, new RetryBudget(0.1, 10));
+        release.countDown();
+
+        assertEquals("hedge of caller", result);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void doesNotHedgeFastCall() {
+        var policy = new RetryPolicy(1, 0, 0, 2, true, TimeUnit.MINUTES.toMillis(1));
+        var budget = new RetryBudget(0.1, 10);
+
+        var result = policy.execute(() -> {
+            calls.incrementAndGet();
+            return "first";
+        }, budget);
+
+        assertEquals("first", result);
+        assertEquals(1, calls.get());
+        assertEquals(10.0, budget.getAvailableRetries());
+    }
+
+    @Test
+    public void doesNotHedgeWithoutBudget() {
+        var policy = new RetryPolicy(1, 0, 0, 2, true, 10);
+        var budget = new RetryBudget(0, 1);
+        budget.tryWithdraw();
+
+        var result = policy.execute(() -> {
+            calls.incrementAndGet();
+            sleep(100);
+            return "first";
+        }, budget);
+
+        assertEquals("first", result);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void waitsForPercentileOfLatenciesBeforeHedging() {
+        // Each reading of the clock advances it by a minute, so every call seems to take at least as long.
+        var clock = new AtomicLong();
+        var policy = new RetryPolicy(1, 0, 0, 2, true, 10, () -> clock.addAndGet(TimeUnit.MINUTES.toNanos(1)));
+        var budget = new RetryBudget(1, 1000);
+
+        for (int i = 0; i < 64; i++) {
+            policy.execute(() -> "warm up", budget);
+        }
+
+        var result = policy.execute(() -> {
+            calls.incrementAndGet();
+            sleep(100);
+            return "first";
+        }, budget);
+
+        assertEquals("first", result);
+        assertEquals(1, calls.get());
+    }
+
+    private String unavailable() {
+        calls.incrementAndGet();
+        throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static TaskDecorator contextPropagation() {
+        return task -> {
+            var context = CONTEXT.get();
+            return () -> {
+                CONTEXT.set(context);
+                try {
+                    task.run();
+                } finally {
+                    CONTEXT.remove();
+                }
+            };
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
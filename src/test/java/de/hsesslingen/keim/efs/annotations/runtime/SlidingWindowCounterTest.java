@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author ben
+ */
+public class SlidingWindowCounterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10, clock::get);
+
+    @Test
+    public void countsCallsAndFailures() {
+        counter.record(false);
+        counter.record(true);
+        advance(500);
+        counter.record(true);
+
+        assertEquals(3, counter.getCalls());
+        assertEquals(2, counter.getFailures());
+    }
+
+    @Test
+    public void dropsBucketsOutsideOfWindow() {
+        counter.record(true);
+        advance(500);
+        counter.record(false);
+
+        advance(550);
+        assertEquals(1, counter.getCalls());
+        assertEquals(0, counter.getFailures());
+
+        advance(500);
+        assertEquals(0, counter.getCalls());
+    }
+
+    @Test
+    public void reusesBucketsOfExpiredEpochs() {
+        counter.record(true);
+        advance(1000);
+        counter.record(false);
+
+        assertEquals(1, counter.getCalls());
+        assertEquals(0, counter.getFailures());
+    }
+
+    @Test
+    public void discardsCallsOnReset() {
+        counter.record(true);
+        counter.reset();
+
+        assertEquals(0, counter.getCalls());
+        assertEquals(0, counter.getFailures());
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
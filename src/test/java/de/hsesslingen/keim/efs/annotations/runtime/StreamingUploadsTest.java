@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ *
+ * @author ben
+ */
+public class StreamingUploadsTest {
+
+    private static final ParameterizedTypeReference<String> STRING = new ParameterizedTypeReference<>() {
+    };
+
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+    private final AtomicReference<String> receivedEncoding = new AtomicReference<>();
+    private final AtomicReference<String> receivedContentType = new AtomicReference<>();
+
+    private HttpServer server;
+    private URI uploads;
+    private PooledRequestFactory requestFactory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/uploads", exchange -> {
+            receivedBody.set(new String(exchange.getRequestBody().readAllBytes(), UTF_8));
+            receivedEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+            receivedContentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+            var status = exchange.getRequestURI().getQuery() != null && exchange.getRequestURI().getQuery().contains("fail") ? 400 : 200;
+            var response = "received".getBytes(UTF_8);
+            exchange.sendResponseHeaders(status, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        uploads = URI.create("http://localhost:" + server.getAddress().getPort() + "/uploads");
+        requestFactory = new HttpClientConfig().createRequestFactory();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        requestFactory.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void streamsInputStreamInChunks() {
+        var body = new ByteArrayInputStream("raw bytes".getBytes(UTF_8));
+
+        var response = StreamingUploads.exchange(new RestTemplate(requestFactory), uploads, HttpMethod.POST, new HttpHeaders(), body, STRING);
+
+        assertEquals("received", response.getBody());
+        assertEquals("raw bytes", receivedBody.get());
+        assertEquals("chunked", receivedEncoding.get());
+        assertEquals("application/octet-stream", receivedContentType.get());
+    }
+
+    @Test
+    public void streamsIteratorAsJsonArray() {
+        var body = List.of("a", "b").iterator();
+
+        StreamingUploads.exchange(new RestTemplate(requestFactory), uploads, HttpMethod.PUT, new HttpHeaders(), body, STRING);
+
+        assertEquals("[\"a\",\"b\"]", receivedBody.get());
+        assertEquals("application/json", receivedContentType.get());
+    }
+
+    @Test
+    public void sendsResourceWithGivenContentType() {
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, "text/csv");
+
+        StreamingUploads.exchange(new RestTemplate(requestFactory), uploads, HttpMethod.POST, headers, new ByteArrayResource("a;b".getBytes(UTF_8)), STRING);
+
+        assertEquals("a;b", receivedBody.get());
+        assertEquals("text/csv", receivedContentType.get());
+    }
+
+    @Test
+    public void buffersWithFactoryThatBuffers() {
+        var body = new ByteArrayInputStream("raw bytes".getBytes(UTF_8));
+
+        StreamingUploads.exchange(new RestTemplate(), uploads, HttpMethod.POST, new HttpHeaders(), body, STRING);
+
+        assertEquals("raw bytes", receivedBody.get());
+        assertNull(receivedEncoding.get());
+    }
+
+    @Test
+    public void appliesErrorHandlerOfRestTemplate() {
+        var failing = URI.create(uploads + "?fail");
+        var restTemplate = new RestTemplate(requestFactory);
+        var body = new ByteArrayInputStream(new byte[0]);
+
+        assertThrows(HttpClientErrorException.class, () -> StreamingUploads.exchange(restTemplate, failing, HttpMethod.POST, new HttpHeaders(), body, STRING));
+    }
+
+    @Test
+    public void keepsTimeoutsOfRequestFactory() {
+        requestFactory.setReadTimeout(100);
+        var slow = URI.create("http://localhost:" + server.getAddress().getPort() + "/slow");
+        var restTemplate = new RestTemplate(requestFactory);
+        var body = new ByteArrayInputStream(new byte[0]);
+
+        assertThrows(ResourceAccessException.class, () -> StreamingUploads.exchange(restTemplate, slow, HttpMethod.POST, new HttpHeaders(), body, STRING));
+    }
+}
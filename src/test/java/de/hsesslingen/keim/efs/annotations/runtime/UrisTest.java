@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2021 ben.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.hsesslingen.keim.efs.annotations.runtime;
+
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author ben
+ */
+public class UrisTest {
+
+    @Test
+    public void keepsUnreservedCharacters() {
+        var value = "Station-1.a_b~Z";
+
+        assertSame(value, Uris.encodePathSegment(value));
+        assertSame(value, Uris.encodeQueryParam(value));
+    }
+
+    @Test
+    public void encodesPathSegments() {
+        assertEquals("a%2Fb%20c", Uris.encodePathSegment("a/b c"));
+        assertEquals("%C3%A4", Uris.encodePathSegment("\u00e4"));
+    }
+
+    @Test
+    public void encodesQueryParams() {
+        assertEquals("a%26b%3Dc", Uris.encodeQueryParam("a&b=c"));
+        assertEquals("a/b", Uris.encodeQueryParam("a/b"));
+    }
+
+    @Test
+    public void appendsQueryParamsWithSeparators() {
+        var uri = new StringBuilder("/stations");
+        var pathLength = uri.length();
+
+        Uris.appendQueryParam(uri, pathLength, "radius", 5);
+        Uris.appendQueryParam(uri, pathLength, "name", "a&b");
+
+        assertEquals("/stations?radius=5&name=a%26b", uri.toString());
+    }
+
+    @Test
+    public void skipsNullAndEmptyValues() {
+        var uri = new StringBuilder("/stations");
+        var pathLength = uri.length();
+
+        Uris.appendQueryParam(uri, pathLength, "radius", null);
+        Uris.appendQueryParam(uri, pathLength, "name", Optional.empty());
+
+        assertEquals("/stations", uri.toString());
+    }
+
+    @Test
+    public void repeatsIterablesAndArrays() {
+        var uri = new StringBuilder("/stations");
+        var pathLength = uri.length();
+
+        Uris.appendQueryParam(uri, pathLength, "id", List.of(1, 2));
+        Uris.appendQueryParam(uri, pathLength, "tag", new String[]{"x", "y z"});
+        Uris.appendQueryParam(uri, pathLength, "type", Optional.of("car"));
+
+        assertEquals("/stations?id=1&id=2&tag=x&tag=y%20z&type=car", uri.toString());
+    }
+}